@@ -0,0 +1,58 @@
+package com.tiket.sharing.fp.builder;
+
+import org.springframework.util.Assert;
+
+/**
+ * Key of customer fact needed by calculation rules, e.g. whether this is customer's first transaction.
+ * Fact values loaded asynchronously by {@link CustomerFactSource}, then provided to {@link FactPredicate}
+ * as {@link CustomerFacts} snapshot. Facts compared by identity, so each fact should be declared once as constant.
+ *
+ * @param <T> type of fact value
+ * @author zakyalvan
+ */
+public final class CustomerFact<T> {
+  /**
+   * Whether current transaction is customer's first transaction.
+   */
+  public static final CustomerFact<Boolean> FIRST_TRANSACTION = of("first-transaction", Boolean.class, false);
+
+  private final String name;
+  private final Class<T> type;
+  private final T defaultValue;
+
+  private CustomerFact(String name, Class<T> type, T defaultValue) {
+    this.name = name;
+    this.type = type;
+    this.defaultValue = defaultValue;
+  }
+
+  /**
+   * Declare customer fact.
+   *
+   * @param name
+   * @param type
+   * @param defaultValue used when fact not loaded
+   * @param <T>
+   * @return
+   */
+  public static <T> CustomerFact<T> of(String name, Class<T> type, T defaultValue) {
+    Assert.hasText(name, "Fact name must be provided");
+    Assert.notNull(type, "Fact type must be provided");
+    return new CustomerFact<>(name, type, defaultValue);
+  }
+
+  public String getName() {
+    return name;
+  }
+  public Class<T> getType() {
+    return type;
+  }
+  public T getDefaultValue() {
+    return defaultValue;
+  }
+
+  @Override
+  public String toString() {
+    return "CustomerFact(" + name + ")";
+  }
+}
@@ -0,0 +1,235 @@
+package com.tiket.sharing.fp.builder;
+
+import static java.util.stream.Collectors.toSet;
+
+import com.tiket.sharing.fp.model.CustomerProfile;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.UnicastProcessor;
+import reactor.util.concurrent.Queues;
+
+/**
+ * Asynchronously load {@link CustomerFacts} using registered {@link FactLoader} of each {@link CustomerFact}.
+ *
+ * Different facts of single customer loaded in parallel, while requests of the same fact for different customers
+ * collected into batches, until either batch size reached or maximum linger elapsed, then loaded at once.
+ *
+ * @author zakyalvan
+ */
+@Slf4j
+public class CustomerFactSource implements Disposable {
+  private final Settings settings;
+  private final Map<CustomerFact<?>, FactBatcher<?>> batchers = new ConcurrentHashMap<>();
+
+  public CustomerFactSource() {
+    this(Settings.builder().build());
+  }
+  public CustomerFactSource(Settings settings) {
+    Assert.notNull(settings, "Fact source settings must be provided");
+    Assert.isTrue(settings.getMaxSize() > 0, "Maximum batch size must be positive");
+    this.settings = settings;
+  }
+
+  /**
+   * Register loader of given fact, replacing previously registered one.
+   *
+   * @param fact
+   * @param loader
+   * @param <T>
+   * @return
+   */
+  public <T> CustomerFactSource loader(CustomerFact<T> fact, FactLoader<T> loader) {
+    Assert.notNull(fact, "Customer fact must be provided");
+    Assert.notNull(loader, "Fact loader must be provided");
+
+    FactBatcher<?> previous = batchers.put(fact, new FactBatcher<>(fact, loader, settings));
+    if (previous != null) {
+      previous.dispose();
+    }
+    return this;
+  }
+
+  /**
+   * Load given facts of customer.
+   *
+   * @param customer
+   * @param facts
+   * @return
+   */
+  public Mono<CustomerFacts> facts(CustomerProfile customer, Set<CustomerFact<?>> facts) {
+    Assert.notNull(customer, "Customer must be provided");
+    Assert.notNull(facts, "Customer facts must be provided");
+
+    if (facts.isEmpty()) {
+      return Mono.just(CustomerFacts.empty());
+    }
+    return Flux.fromIterable(facts)
+        .flatMap(fact -> load(fact, customer))
+        .collectMap(Entry::getFact, Entry::getValue, HashMap<CustomerFact<?>, Object>::new)
+        .map(CustomerFacts::of);
+  }
+
+  private <T> Mono<Entry> load(CustomerFact<T> fact, CustomerProfile customer) {
+    @SuppressWarnings("unchecked")
+    FactBatcher<T> batcher = (FactBatcher<T>) batchers.get(fact);
+    if (batcher == null) {
+      return Mono.error(new IllegalStateException("No loader registered for " + fact));
+    }
+    return batcher.load(customer).map(value -> new Entry(fact, value));
+  }
+
+  @Override
+  public void dispose() {
+    batchers.values().forEach(FactBatcher::dispose);
+    batchers.clear();
+  }
+
+  private static final class FactBatcher<T> implements Disposable {
+    private final CustomerFact<T> fact;
+    private final FactLoader<T> loader;
+    private final Settings settings;
+    private volatile Pipeline<T> pipeline;
+    private volatile boolean disposed;
+
+    private FactBatcher(CustomerFact<T> fact, FactLoader<T> loader, Settings settings) {
+      this.fact = fact;
+      this.loader = loader;
+      this.settings = settings;
+      this.pipeline = start();
+    }
+
+    Mono<T> load(CustomerProfile customer) {
+      return Mono.create(sink -> {
+        Pipeline<T> pipeline = this.pipeline;
+        PendingFact<T> pending = new PendingFact<>(customer, sink);
+        pipeline.pendings.add(pending);
+        sink.onDispose(() -> pipeline.pendings.remove(pending));
+        pipeline.pendingFacts.next(pending);
+
+        Throwable error = pipeline.error;
+        if (error != null) {
+          sink.error(error);
+        }
+      });
+    }
+
+    /**
+     * Start batching pipeline. Batches closed while all concurrent loads busy are queued, so that linger timer never
+     * fails for lack of demand. Pipeline terminated unexpectedly fails its pending requests and replaced.
+     *
+     * @return
+     */
+    private Pipeline<T> start() {
+      UnicastProcessor<PendingFact<T>> processor = UnicastProcessor.create(Queues.<PendingFact<T>>unbounded().get());
+      Pipeline<T> pipeline = new Pipeline<>(processor.sink());
+      pipeline.subscription.update(processor
+          .bufferTimeout(settings.getMaxSize(), settings.getMaxLinger())
+          .onBackpressureBuffer()
+          .flatMap(this::dispatch, settings.getConcurrency())
+          .subscribe(null, error -> restart(pipeline, error)));
+      return pipeline;
+    }
+
+    private void restart(Pipeline<T> failed, Throwable error) {
+      log.error("Loading {} terminated unexpectedly, restarting", fact, error);
+      failed.error = error;
+      if (!disposed) {
+        pipeline = start();
+      }
+      failed.pendings.forEach(pending -> pending.sink.error(error));
+    }
+
+    private Mono<Void> dispatch(List<PendingFact<T>> batch) {
+      Set<CustomerProfile> customers = batch.stream().map(pending -> pending.customer).collect(toSet());
+      return Mono.defer(() -> loader.load(customers))
+          .defaultIfEmpty(Collections.emptyMap())
+          .doOnSuccess(values -> batch.forEach(pending -> pending.sink
+              .success(values.getOrDefault(pending.customer, fact.getDefaultValue()))))
+          .doOnError(error -> batch.forEach(pending -> pending.sink.error(error)))
+          .onErrorResume(error -> Mono.empty())
+          .then();
+    }
+
+    @Override
+    public void dispose() {
+      disposed = true;
+      Pipeline<T> pipeline = this.pipeline;
+      pipeline.pendingFacts.complete();
+      pipeline.subscription.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+      return disposed;
+    }
+  }
+
+  /**
+   * Single subscription of {@link FactBatcher}, along with its requests not yet answered.
+   */
+  private static final class Pipeline<T> {
+    private final FluxSink<PendingFact<T>> pendingFacts;
+    private final Set<PendingFact<T>> pendings = ConcurrentHashMap.newKeySet();
+    private final Disposable.Swap subscription = Disposables.swap();
+    private volatile Throwable error;
+
+    private Pipeline(FluxSink<PendingFact<T>> pendingFacts) {
+      this.pendingFacts = pendingFacts;
+    }
+  }
+
+  private static final class PendingFact<T> {
+    private final CustomerProfile customer;
+    private final MonoSink<T> sink;
+
+    private PendingFact(CustomerProfile customer, MonoSink<T> sink) {
+      this.customer = customer;
+      this.sink = sink;
+    }
+  }
+
+  @Value
+  @Getter
+  private static class Entry {
+    CustomerFact<?> fact;
+    Object value;
+  }
+
+  @Value
+  @Getter
+  @lombok.Builder(builderClassName = "Builder")
+  public static class Settings {
+    /**
+     * Maximum number of customers in single batch of each fact.
+     */
+    @lombok.Builder.Default
+    int maxSize = 100;
+
+    /**
+     * Maximum time first request in batch waiting for others.
+     */
+    @lombok.Builder.Default
+    Duration maxLinger = Duration.ofMillis(5);
+
+    /**
+     * Maximum number of batch in flight of each fact.
+     */
+    @lombok.Builder.Default
+    int concurrency = 4;
+  }
+}
@@ -0,0 +1,53 @@
+package com.tiket.sharing.fp.builder;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.util.Assert;
+
+/**
+ * Immutable snapshot of loaded facts of single customer.
+ *
+ * @author zakyalvan
+ */
+public final class CustomerFacts {
+  private static final CustomerFacts EMPTY = new CustomerFacts(Collections.emptyMap());
+
+  private final Map<CustomerFact<?>, Object> values;
+
+  private CustomerFacts(Map<CustomerFact<?>, Object> values) {
+    this.values = values;
+  }
+
+  public static CustomerFacts empty() {
+    return EMPTY;
+  }
+
+  public static CustomerFacts of(Map<CustomerFact<?>, ?> values) {
+    Assert.notNull(values, "Fact values must be provided");
+    values.forEach((fact, value) -> Assert.isTrue(value == null || fact.getType().isInstance(value),
+        () -> "Invalid value of " + fact + ", " + value));
+    return values.isEmpty() ? EMPTY : new CustomerFacts(Collections.unmodifiableMap(new HashMap<>(values)));
+  }
+
+  /**
+   * Value of given fact, or its default value if not loaded.
+   *
+   * @param fact
+   * @param <T>
+   * @return
+   */
+  public <T> T get(CustomerFact<T> fact) {
+    Object value = values.get(fact);
+    return (value == null) ? fact.getDefaultValue() : fact.getType().cast(value);
+  }
+
+  public boolean contains(CustomerFact<?> fact) {
+    return values.containsKey(fact);
+  }
+
+  @Override
+  public String toString() {
+    return "CustomerFacts" + values;
+  }
+}
@@ -0,0 +1,46 @@
+package com.tiket.sharing.fp.builder;
+
+import com.tiket.sharing.fp.model.CustomerProfile;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Load value of single {@link CustomerFact} for batch of customers.
+ *
+ * @param <T> type of fact value
+ * @author zakyalvan
+ */
+@FunctionalInterface
+public interface FactLoader<T> {
+  /**
+   * Load fact values of given customers. Customers without value in resulting map get fact's default value.
+   *
+   * @param customers
+   * @return
+   */
+  Mono<Map<CustomerProfile, T>> load(Set<CustomerProfile> customers);
+
+  /**
+   * Adapt blocking lookup, e.g. database query, executed on bounded elastic scheduler
+   * so that it never blocks event loop thread.
+   *
+   * @param lookup
+   * @param <T>
+   * @return
+   */
+  static <T> FactLoader<T> blocking(Function<CustomerProfile, T> lookup) {
+    Assert.notNull(lookup, "Fact lookup must be provided");
+    return customers -> Mono
+        .fromCallable(() -> {
+          Map<CustomerProfile, T> values = new HashMap<>();
+          customers.forEach(customer -> values.put(customer, lookup.apply(customer)));
+          return values;
+        })
+        .subscribeOn(Schedulers.boundedElastic());
+  }
+}
@@ -0,0 +1,137 @@
+package com.tiket.sharing.fp.builder;
+
+import com.tiket.sharing.fp.model.CustomerProfile;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import org.springframework.util.Assert;
+
+/**
+ * Customer predicate evaluated against {@link CustomerFacts} snapshot, declaring facts it needs so that
+ * {@link LoyaltyCalculationEngine.DefaultCalculationEngine} could load them asynchronously beforehand.
+ *
+ * @author zakyalvan
+ */
+public interface FactPredicate extends Predicate<CustomerProfile> {
+  /**
+   * Facts needed by this predicate.
+   *
+   * @return
+   */
+  Set<CustomerFact<?>> facts();
+
+  boolean test(CustomerProfile customer, CustomerFacts facts);
+
+  /**
+   * Evaluate using default value of each fact.
+   *
+   * @param customer
+   * @return
+   */
+  @Override
+  default boolean test(CustomerProfile customer) {
+    return test(customer, CustomerFacts.empty());
+  }
+
+  @Override
+  default FactPredicate and(Predicate<? super CustomerProfile> other) {
+    Assert.notNull(other, "Other predicate must be provided");
+    return new Conjunction(this, other);
+  }
+
+  /**
+   * Compose given predicates, keeping facts needed by either of them.
+   *
+   * @param first
+   * @param second
+   * @return
+   */
+  @SuppressWarnings("unchecked")
+  static Predicate<CustomerProfile> both(Predicate<? super CustomerProfile> first,
+      Predicate<? super CustomerProfile> second) {
+    Assert.notNull(first, "First predicate must be provided");
+    Assert.notNull(second, "Second predicate must be provided");
+    if (first instanceof FactPredicate || second instanceof FactPredicate) {
+      return new Conjunction(first, second);
+    }
+    return ((Predicate<CustomerProfile>) first).and(second);
+  }
+
+  /**
+   * Predicate matching customer with true value of given fact.
+   *
+   * @param fact
+   * @return
+   */
+  static FactPredicate isTrue(CustomerFact<Boolean> fact) {
+    return matching(fact, Boolean.TRUE::equals);
+  }
+
+  static <T> FactPredicate matching(CustomerFact<T> fact, Predicate<? super T> condition) {
+    Assert.notNull(fact, "Customer fact must be provided");
+    Assert.notNull(condition, "Fact condition must be provided");
+
+    Set<CustomerFact<?>> facts = Collections.singleton(fact);
+    return new FactPredicate() {
+      @Override
+      public Set<CustomerFact<?>> facts() {
+        return facts;
+      }
+
+      @Override
+      public boolean test(CustomerProfile customer, CustomerFacts values) {
+        return condition.test(values.get(fact));
+      }
+    };
+  }
+
+  /**
+   * Evaluate given predicate as {@link FactPredicate}.
+   *
+   * @param customer
+   * @param facts
+   * @param predicate
+   * @return
+   */
+  static boolean evaluate(Predicate<? super CustomerProfile> predicate, CustomerProfile customer, CustomerFacts facts) {
+    return (predicate instanceof FactPredicate)
+        ? ((FactPredicate) predicate).test(customer, facts)
+        : predicate.test(customer);
+  }
+
+  /**
+   * Facts needed by given predicate, empty if it's not a {@link FactPredicate}.
+   *
+   * @param predicate
+   * @return
+   */
+  static Set<CustomerFact<?>> factsOf(Predicate<? super CustomerProfile> predicate) {
+    return (predicate instanceof FactPredicate) ? ((FactPredicate) predicate).facts() : Collections.emptySet();
+  }
+
+  final class Conjunction implements FactPredicate {
+    private final Predicate<? super CustomerProfile> first;
+    private final Predicate<? super CustomerProfile> second;
+    private final Set<CustomerFact<?>> facts;
+
+    private Conjunction(Predicate<? super CustomerProfile> first, Predicate<? super CustomerProfile> second) {
+      this.first = first;
+      this.second = second;
+
+      Set<CustomerFact<?>> facts = new HashSet<>(FactPredicate.factsOf(first));
+      facts.addAll(FactPredicate.factsOf(second));
+      this.facts = Collections.unmodifiableSet(facts);
+    }
+
+    @Override
+    public Set<CustomerFact<?>> facts() {
+      return facts;
+    }
+
+    @Override
+    public boolean test(CustomerProfile customer, CustomerFacts values) {
+      return FactPredicate.evaluate(first, customer, values) && FactPredicate.evaluate(second, customer, values);
+    }
+  }
+}
@@ -4,26 +4,38 @@ import static com.tiket.sharing.fp.model.LoyaltyEarning.create;
 import static com.tiket.sharing.fp.model.MembershipTier.BASIC;
 import static com.tiket.sharing.fp.model.MembershipTier.GOLD;
 import static com.tiket.sharing.fp.model.MembershipTier.PLATINUM;
-import static java.time.Duration.ofDays;
 import static java.util.Comparator.comparing;
-import static java.util.Objects.isNull;
 import static reactor.core.publisher.Mono.fromCallable;
 
+import com.tiket.sharing.fp.model.Clocks;
 import com.tiket.sharing.fp.model.CustomerProfile;
 import com.tiket.sharing.fp.model.LoyaltyEarning;
+import com.tiket.sharing.fp.model.MembershipTier;
+import com.tiket.sharing.fp.model.Money;
 import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Clock;
 import java.time.Duration;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 import javax.validation.constraints.NotNull;
-import lombok.NoArgsConstructor;
-import org.springframework.core.Ordered;
+import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.util.Assert;
 import org.springframework.validation.annotation.Validated;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 /**
  * @author zakyalvan
@@ -32,13 +44,105 @@ import reactor.core.publisher.Mono;
 public interface LoyaltyCalculationEngine {
   LoyaltyCalculator calculator(@NotNull CustomerProfile customer);
 
+  /**
+   * Select calculator using already known customer facts, e.g. in batch re-scoring.
+   *
+   * @param customer
+   * @param facts
+   * @return
+   */
+  default LoyaltyCalculator calculator(@NotNull CustomerProfile customer, @NotNull CustomerFacts facts) {
+    return calculator(customer);
+  }
+
+  /**
+   * Facts which calculator selection of given customer depends on, so that callers selecting calculator up front,
+   * without loading facts of each customer, could reject rules they cannot honour. None by default, as facts are
+   * ignored by default {@link #calculator(CustomerProfile, CustomerFacts)}.
+   *
+   * @param customer
+   * @return
+   */
+  default Set<CustomerFact<?>> facts(@NotNull CustomerProfile customer) {
+    return Collections.emptySet();
+  }
+
+  /**
+   * Clock of expiry time of earnings calculated in bulk by {@link #calculateAll(Flux, Scheduler, int)}.
+   *
+   * @return
+   */
+  default Clock clock() {
+    return Clock.systemDefaultZone();
+  }
+
+  /**
+   * Calculate earnings of many transactions, emitted in the same order as given transactions.
+   *
+   * @param transactions pair of customer and transaction amount
+   * @return
+   * @see #calculateAll(Flux, Scheduler, int)
+   */
+  default Flux<LoyaltyEarning> calculateAll(Flux<Pair<CustomerProfile, BigDecimal>> transactions) {
+    return calculateAll(transactions, Schedulers.parallel(), Queues.SMALL_BUFFER_SIZE);
+  }
+
+  /**
+   * Calculate earnings of many transactions on parallel rails of given {@link Scheduler}, emitted in the same order
+   * as given transactions. Calculator of each distinct customer resolved once per subscription, and
+   * {@link PointCalculator} evaluated synchronously without subscribing to its {@link Mono}, with expiry anchored
+   * to instant of {@link #clock()} on subscription.
+   *
+   * @param transactions pair of customer and transaction amount
+   * @param scheduler
+   * @param prefetch number of transactions requested ahead by each rail
+   * @return
+   */
+  default Flux<LoyaltyEarning> calculateAll(Flux<Pair<CustomerProfile, BigDecimal>> transactions,
+      Scheduler scheduler, int prefetch) {
+    Assert.notNull(transactions, "Transactions must be provided");
+    Assert.notNull(scheduler, "Scheduler must be provided");
+    Assert.isTrue(prefetch > 0, "Prefetch must be positive");
+
+    return Flux.defer(() -> {
+      Clock anchor = Clocks.anchored(clock());
+      Map<CustomerProfile, LoyaltyCalculator> calculators = new ConcurrentHashMap<>();
+      return transactions.index()
+          .parallel(Schedulers.DEFAULT_POOL_SIZE, prefetch)
+          .runOn(scheduler, prefetch)
+          .concatMap(indexed -> {
+            Pair<CustomerProfile, BigDecimal> transaction = indexed.getT2();
+            LoyaltyCalculator calculator = calculators.computeIfAbsent(transaction.getKey(), this::calculator);
+            if (calculator instanceof PointCalculator) {
+              LoyaltyEarning earning = ((PointCalculator) calculator).earning(transaction.getValue(), anchor);
+              return Mono.just(Tuples.of(indexed.getT1(), earning));
+            }
+            return calculator.calculate(transaction.getValue())
+                .map(earning -> Tuples.of(indexed.getT1(), earning));
+          }, prefetch)
+          .ordered(comparing(Tuple2::getT1), prefetch)
+          .map(Tuple2::getT2);
+    });
+  }
+
   /**
    * Factory method for creating empty default  {@link LoyaltyCalculationEngine}
    *
    * @return
    */
   static DefaultCalculationEngine empty() {
-    return new DefaultCalculationEngine();
+    return empty(Clock.systemDefaultZone());
+  }
+
+  /**
+   * Factory method for creating empty default {@link LoyaltyCalculationEngine} using given clock, e.g. fixed or
+   * virtual clock in batch jobs and tests.
+   *
+   * @param clock
+   * @return
+   */
+  static DefaultCalculationEngine empty(Clock clock) {
+    return new DefaultCalculationEngine(clock);
   }
 
   @FunctionalInterface
@@ -59,80 +163,439 @@ public interface LoyaltyCalculationEngine {
      * @return
      */
     default LoyaltyCalculator thenAccumulate(LoyaltyCalculator other) {
-      return amount -> calculate(amount)
-          .flatMap(original -> other.calculate(amount)
+      return new AccumulatedCalculator(this, other, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Copy of this calculator creating earnings using given clock, or this calculator itself when it doesn't create
+     * earning on its own. Applied once when rule registered or published, never on calculation.
+     *
+     * @param clock
+     * @return
+     */
+    default LoyaltyCalculator withClock(Clock clock) {
+      return this;
+    }
+
+    /**
+     * Calculate earning point based on transaction amount in {@link Money}.
+     *
+     * @param amount
+     * @return
+     */
+    default Mono<LoyaltyEarning> calculate(Money amount) {
+      return calculate(amount.toBigDecimal());
+    }
+
+    /**
+     * Linear calculator of given factor, rounded to 9 significant digits, so that binary representation error
+     * (e.g. of 0.1 + 0.2) doesn't blow up factor's rational numerator and denominator.
+     *
+     * @param factor
+     * @param validity
+     * @return
+     */
+    static LinearCalculator earningFactor(double factor, Duration validity) {
+      Assert.isTrue(Double.isFinite(factor), "Earning factor must be finite");
+      return earningFactor(new BigDecimal(factor, new MathContext(9, RoundingMode.HALF_EVEN)), validity);
+    }
+    static LinearCalculator earningFactor(BigDecimal factor, Duration validity) {
+      Assert.notNull(factor, "Earning factor must be provided");
+      BigDecimal decimal = factor.stripTrailingZeros();
+      if (decimal.scale() <= 0) {
+        return earningFactor(decimal.longValueExact(), 1, validity);
+      }
+      return earningFactor(decimal.unscaledValue().longValueExact(), Money.powerOfTen(decimal.scale()), validity);
+    }
+    static LinearCalculator earningFactor(long numerator, long denominator, Duration validity) {
+      Assert.isTrue(denominator > 0, "Factor denominator must be positive");
+      return new LinearCalculator(new long[] {numerator}, new long[] {denominator}, new long[] {0},
+          new long[] {Long.MIN_VALUE}, validity);
+    }
+    static LinearCalculator constantEarning(int points, Duration validity) {
+      return new LinearCalculator(new long[] {0}, new long[] {1}, new long[] {points},
+          new long[] {Long.MIN_VALUE}, validity);
+    }
+  }
+
+  /**
+   * Synchronous {@link LoyaltyCalculator}, calculating primitive points directly.
+   * Adapted to {@link Mono} only on {@link #calculate(BigDecimal)} and {@link #calculate(Money)}.
+   */
+  interface PointCalculator extends LoyaltyCalculator {
+    /**
+     * Calculate earning points of given transaction amount.
+     *
+     * @param amount
+     * @return
+     */
+    long points(long amount);
+
+    /**
+     * Calculate earning points of given transaction amount in minor units.
+     *
+     * @param minorUnits
+     * @param fractionDigits number of fraction digits of amount's currency
+     * @param rounding
+     * @return
+     */
+    default long points(long minorUnits, int fractionDigits, RoundingMode rounding) {
+      return points(Money.roundedDivide(minorUnits, Money.powerOfTen(fractionDigits), rounding));
+    }
+
+    /**
+     * Calculate earning points of given decimal transaction amount, rounding down in fixed point instead of
+     * truncating amount's fraction first. Fraction beyond 6 digits is truncated.
+     *
+     * @param amount
+     * @return
+     */
+    default long points(BigDecimal amount) {
+      BigDecimal decimal = amount.stripTrailingZeros();
+      if (decimal.scale() <= 0) {
+        return points(decimal.longValueExact());
+      }
+      decimal = decimal.setScale(Math.min(decimal.scale(), 6), RoundingMode.DOWN);
+      return points(decimal.unscaledValue().longValueExact(), decimal.scale(), RoundingMode.DOWN);
+    }
+
+    Duration validity();
+
+    /**
+     * Clock of expiry time of created earnings.
+     *
+     * @return
+     */
+    default Clock clock() {
+      return Clock.systemDefaultZone();
+    }
+
+    default LoyaltyEarning earning(long amount) {
+      return earning(amount, clock());
+    }
+    default LoyaltyEarning earning(long amount, Clock clock) {
+      return create((int) points(amount), validity(), clock);
+    }
+    default LoyaltyEarning earning(BigDecimal amount, Clock clock) {
+      return create((int) points(amount), validity(), clock);
+    }
+
+    @Override
+    default Mono<LoyaltyEarning> calculate(BigDecimal amount) {
+      return fromCallable(() -> earning(amount, clock()));
+    }
+
+    @Override
+    default Mono<LoyaltyEarning> calculate(Money amount) {
+      return fromCallable(() -> create(
+          (int) points(amount.getMinorUnits(), amount.fractionDigits(), RoundingMode.DOWN), validity(), clock()));
+    }
+  }
+
+  /**
+   * Sum of earnings of two calculators, see {@link LoyaltyCalculator#thenAccumulate(LoyaltyCalculator)}.
+   */
+  final class AccumulatedCalculator implements LoyaltyCalculator {
+    private final LoyaltyCalculator first;
+    private final LoyaltyCalculator second;
+    private final Clock clock;
+
+    private AccumulatedCalculator(LoyaltyCalculator first, LoyaltyCalculator second, Clock clock) {
+      Assert.notNull(second, "Accumulated calculator must be provided");
+      this.first = first;
+      this.second = second;
+      this.clock = clock;
+    }
+
+    @Override
+    public Mono<LoyaltyEarning> calculate(BigDecimal amount) {
+      return first.calculate(amount)
+          .flatMap(original -> second.calculate(amount)
               .map(additional -> create(original.getPoints() + additional.getPoints(),
-                  Duration.ofDays(100)))
-          );
+                  LinearCalculator.ACCUMULATED_VALIDITY, clock)));
     }
 
-    static LoyaltyCalculator earningFactor(double factor, Duration validity) {
-      return amount -> fromCallable(() -> create((int) (amount.longValue() * factor), validity));
+    @Override
+    public AccumulatedCalculator withClock(Clock clock) {
+      return new AccumulatedCalculator(first.withClock(clock), second.withClock(clock), clock);
     }
-    static LoyaltyCalculator constantEarning(int points, Duration validity) {
-      return amount -> fromCallable(() -> create(points, validity));
+  }
+
+  /**
+   * Sum of factor based and constant earnings, with factors kept as exact rationals and each earning term
+   * rounded separately. Each term optionally only applied to transaction of minimum amount.
+   * Accumulating other {@link LinearCalculator} flattened into single arithmetic expression instead of
+   * chaining reactive operators.
+   */
+  final class LinearCalculator implements PointCalculator {
+    private static final Duration ACCUMULATED_VALIDITY = Duration.ofDays(100);
+
+    private final long[] numerators;
+    private final long[] denominators;
+    private final long[] constants;
+    private final long[] minimums;
+    private final Duration validity;
+    private final Clock clock;
+
+    private LinearCalculator(long[] numerators, long[] denominators, long[] constants, long[] minimums,
+        Duration validity) {
+      this(numerators, denominators, constants, minimums, validity, Clock.systemDefaultZone());
+    }
+    private LinearCalculator(long[] numerators, long[] denominators, long[] constants, long[] minimums,
+        Duration validity, Clock clock) {
+      Assert.notNull(validity, "Earning validity must be provided");
+      Assert.notNull(clock, "Clock must be provided");
+      this.numerators = numerators;
+      this.denominators = denominators;
+      this.constants = constants;
+      this.minimums = minimums;
+      this.validity = validity;
+      this.clock = clock;
+    }
+
+    @Override
+    public long points(long amount) {
+      long points = 0;
+      for (int index = 0; index < numerators.length; index++) {
+        if (amount >= minimums[index]) {
+          points += constants[index] + Math.multiplyExact(amount, numerators[index]) / denominators[index];
+        }
+      }
+      return points;
+    }
+
+    @Override
+    public long points(long minorUnits, int fractionDigits, RoundingMode rounding) {
+      long scale = Money.powerOfTen(fractionDigits);
+      long majorUnits = Math.floorDiv(minorUnits, scale);
+      long points = 0;
+      for (int index = 0; index < numerators.length; index++) {
+        if (majorUnits >= minimums[index]) {
+          points += constants[index] + Money.roundedDivide(Math.multiplyExact(minorUnits, numerators[index]),
+              Math.multiplyExact(denominators[index], scale), rounding);
+        }
+      }
+      return points;
+    }
+
+    @Override
+    public Duration validity() {
+      return validity;
+    }
+
+    @Override
+    public Clock clock() {
+      return clock;
+    }
+
+    @Override
+    public LinearCalculator withClock(Clock clock) {
+      return new LinearCalculator(numerators, denominators, constants, minimums, validity, clock);
+    }
+
+    /**
+     * Copy of this calculator, earning only for transaction of at least given amount.
+     *
+     * @param amount minimum amount, in major units
+     * @return
+     */
+    public LinearCalculator minimumAmount(long amount) {
+      long[] minimums = new long[this.minimums.length];
+      for (int index = 0; index < minimums.length; index++) {
+        minimums[index] = Math.max(this.minimums[index], amount);
+      }
+      return new LinearCalculator(numerators, denominators, constants, minimums, validity, clock);
+    }
+
+    @Override
+    public LoyaltyCalculator thenAccumulate(LoyaltyCalculator other) {
+      if (!(other instanceof LinearCalculator)) {
+        return PointCalculator.super.thenAccumulate(other);
+      }
+
+      LinearCalculator additional = (LinearCalculator) other;
+      return new LinearCalculator(concat(numerators, additional.numerators),
+          concat(denominators, additional.denominators), concat(constants, additional.constants),
+          concat(minimums, additional.minimums), ACCUMULATED_VALIDITY, clock);
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+      long[] result = Arrays.copyOf(first, first.length + second.length);
+      System.arraycopy(second, 0, result, first.length, second.length);
+      return result;
     }
   }
 
+  /**
+   * Default {@link LoyaltyCalculationEngine}, selecting first calculation rule matching customer in registration order.
+   *
+   * Rules compiled into immutable {@link RuleSet}, published through single atomic reference, so calculation never
+   * locks. Customer facts needed by rules (see {@link FactPredicate}) loaded asynchronously, never blocking
+   * {@link #calculator(CustomerProfile)}. Registering rule or publishing new rule set doesn't affect calculations in progress, which keep using
+   * calculator selected from previous rule set. Earnings created using engine's {@link #clock()}, bound to calculators
+   * when registered or published.
+   */
   @Validated
   class DefaultCalculationEngine implements LoyaltyCalculationEngine {
-    private final Map<OrderedPredicate<CustomerProfile>, LoyaltyCalculator> calculateRules;
-    private double defaultFactor;
+    private final AtomicReference<RuleSet> ruleSet;
+    private final Clock clock;
+    private volatile CustomerFactSource factSource;
+
+    DefaultCalculationEngine(Clock clock) {
+      Assert.notNull(clock, "Clock must be provided");
+      this.clock = clock;
+      this.ruleSet = new AtomicReference<>(RuleSet.empty().withClock(clock));
+    }
 
-    DefaultCalculationEngine() {
-      this.calculateRules = new TreeMap<>(comparing(OrderedPredicate::getOrder));
+    @Override
+    public Clock clock() {
+      return clock;
     }
 
+    /**
+     * Select calculator without blocking. Facts needed by rules loaded from configured {@link CustomerFactSource},
+     * or default value of each fact used if no source configured.
+     *
+     * @param customer
+     * @return
+     */
     @Override
     public LoyaltyCalculator calculator(CustomerProfile customer) {
-      return calculateRules.entrySet().stream()
-          .filter(entry -> entry.getKey().test(customer))
-          .map(Entry::getValue)
-          .findFirst()
-          .orElse(amount -> fromCallable(() -> create((int) (amount.longValue() * defaultFactor), ofDays(100))));
+      CustomerFactSource factSource = this.factSource;
+      return (factSource != null)
+          ? ruleSet.get().calculator(customer, factSource)
+          : ruleSet.get().calculator(customer);
+    }
+
+    @Override
+    public LoyaltyCalculator calculator(CustomerProfile customer, CustomerFacts facts) {
+      return ruleSet.get().calculator(customer, facts);
+    }
+
+    @Override
+    public Set<CustomerFact<?>> facts(CustomerProfile customer) {
+      return ruleSet.get().facts(customer);
+    }
+
+    public DefaultCalculationEngine factSource(CustomerFactSource factSource) {
+      this.factSource = factSource;
+      return this;
     }
 
     public DefaultCalculationEngine calculationRule(Predicate<CustomerProfile> predicate, LoyaltyCalculator calculator) {
-      calculateRules.put(OrderedPredicate.wrap(predicate, calculateRules.size() + 1), calculator);
+      ruleSet.updateAndGet(current -> current.withRule(predicate, calculator));
+      return this;
+    }
+
+    /**
+     * Register rule which never matches the same customer as other exclusive rules, so that contiguous exclusive rules
+     * could be reordered by {@link #reorder()}.
+     *
+     * @param predicate
+     * @param calculator
+     * @return
+     */
+    public DefaultCalculationEngine exclusiveRule(Predicate<CustomerProfile> predicate, LoyaltyCalculator calculator) {
+      ruleSet.updateAndGet(current -> current.withRule(predicate, calculator, true));
       return this;
     }
     public DefaultCalculationEngine defaultFactor(double factor) {
-      this.defaultFactor = factor;
+      ruleSet.updateAndGet(current -> current.withDefaultFactor(factor));
       return this;
     }
+
+    /**
+     * Replace all rules with given rule set, versioned right after currently published rule set, with calculators bound
+     * to engine's clock, see {@link RuleSet#withClock(Clock)}.
+     *
+     * @param next
+     * @return published rule set
+     */
+    public RuleSet publish(RuleSet next) {
+      Assert.notNull(next, "Rule set must be provided");
+      RuleSet clocked = next.withClock(clock);
+      return ruleSet.updateAndGet(current -> clocked.withVersion(current.getVersion() + 1));
+    }
+
+    /**
+     * Currently published rule set.
+     *
+     * @return
+     */
+    public RuleSet ruleSet() {
+      return ruleSet.get();
+    }
+
+    /**
+     * Reorder exclusive rules of currently published rule set by their hit rate and cost so far,
+     * see {@link RuleSet#reordered()}.
+     *
+     * @return reordered rule set
+     */
+    public RuleSet reorder() {
+      return ruleSet.updateAndGet(RuleSet::reordered);
+    }
+
+    /**
+     * Periodically {@link #reorder()} on given interval.
+     *
+     * @param interval
+     * @return disposable stopping reordering
+     */
+    public Disposable adaptiveOrdering(Duration interval) {
+      Assert.isTrue(interval != null && !interval.isNegative() && !interval.isZero(), "Interval must be positive");
+      return Flux.interval(interval).subscribe(tick -> reorder());
+    }
   }
 
   static Predicate<CustomerProfile> basicMembership() {
-    return customer -> !isNull(customer.getMemberTier()) && BASIC.equals(customer.getMemberTier());
+    return TierPredicate.of(BASIC);
   }
   static Predicate<CustomerProfile> goldMembership() {
-    return customer -> !isNull(customer.getMemberTier()) && GOLD.equals(customer.getMemberTier());
+    return TierPredicate.of(GOLD);
   }
   static Predicate<CustomerProfile> platinumMembership() {
-    return customer -> !isNull(customer.getMemberTier()) && PLATINUM.equals(customer.getMemberTier());
+    return TierPredicate.of(PLATINUM);
   }
 
-  class OrderedPredicate<T> implements Predicate<T>, Ordered {
-    private final Predicate<T> delegate;
-    private final int order;
+  /**
+   * Predicate matching customer of given {@link MembershipTier}, optionally with additional condition
+   * composed using {@link #and(Predicate)}. Recognized by {@link RuleSet} for indexing rules.
+   */
+  final class TierPredicate implements Predicate<CustomerProfile> {
+    private final MembershipTier tier;
+    private final Predicate<CustomerProfile> condition;
+
+    private TierPredicate(MembershipTier tier, Predicate<CustomerProfile> condition) {
+      this.tier = tier;
+      this.condition = condition;
+    }
 
-    private OrderedPredicate(Predicate<T> delegate, int order) {
-      this.delegate = delegate;
-      this.order = order;
+    static TierPredicate of(MembershipTier tier) {
+      Assert.notNull(tier, "Membership tier must be provided");
+      return new TierPredicate(tier, null);
     }
 
     @Override
-    public boolean test(T o) {
-      return delegate.test(o);
+    public boolean test(CustomerProfile customer) {
+      return tier.equals(customer.getMemberTier()) && (condition == null || condition.test(customer));
     }
 
     @Override
-    public int getOrder() {
-      return order;
+    @SuppressWarnings("unchecked")
+    public TierPredicate and(Predicate<? super CustomerProfile> other) {
+      Assert.notNull(other, "Other predicate must be provided");
+      Predicate<CustomerProfile> combined = (condition == null)
+          ? (Predicate<CustomerProfile>) other : FactPredicate.both(condition, other);
+      return new TierPredicate(tier, combined);
+    }
+
+    public MembershipTier getTier() {
+      return tier;
     }
 
-    static <T> OrderedPredicate<T> wrap(Predicate<T> predicate, int order) {
-      return new OrderedPredicate<>(predicate, order);
+    Predicate<CustomerProfile> getCondition() {
+      return condition;
     }
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,349 @@
+package com.tiket.sharing.fp.builder;
+
+import static com.tiket.sharing.fp.builder.TransactionFile.AMOUNT_OFFSET;
+import static com.tiket.sharing.fp.builder.TransactionFile.FLAGS_OFFSET;
+import static com.tiket.sharing.fp.builder.TransactionFile.INTERNAL_DOMAIN;
+import static com.tiket.sharing.fp.builder.TransactionFile.RECORD_SIZE;
+import static com.tiket.sharing.fp.builder.TransactionFile.TIER_OFFSET;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.LoyaltyCalculator;
+import com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.PointCalculator;
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.MembershipTier;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import lombok.Getter;
+import lombok.Value;
+import org.springframework.util.Assert;
+
+/**
+ * Re-score historical transactions of {@link TransactionFile} using current rules of {@link LoyaltyCalculationEngine},
+ * writing total points of each customer into output file, as pairs of long customer id and long points.
+ *
+ * Transaction file only contains tier and email domain flag of customers, so calculator of each combination resolved
+ * once up front from representative {@link CustomerProfile}, and must be a {@link PointCalculator}. Rules depending on
+ * {@link CustomerFact} cannot be honoured per record, hence rejected up front. Input file then memory mapped per chunk and scored in {@link ForkJoinPool}
+ * without allocation per record.
+ *
+ * @author zakyalvan
+ */
+public class LoyaltyRescoringJob {
+  private static final int TOTAL_SIZE = 16;
+
+  private final Settings settings;
+  private final PointCalculator[] calculators;
+
+  public LoyaltyRescoringJob(LoyaltyCalculationEngine calculationEngine) {
+    this(calculationEngine, Settings.builder().build());
+  }
+  public LoyaltyRescoringJob(LoyaltyCalculationEngine calculationEngine, Settings settings) {
+    Assert.notNull(calculationEngine, "Loyalty calculation engine must be provided");
+    Assert.notNull(settings, "Rescoring settings must be provided");
+    Assert.isTrue(settings.getChunkRecords() > 0 && settings.getChunkRecords() <= Integer.MAX_VALUE / RECORD_SIZE,
+        "Chunk records must be positive and mappable");
+    Assert.isTrue(settings.getParallelism() > 0, "Parallelism must be positive");
+    Assert.isTrue(settings.getFractionDigits() >= 0 && settings.getFractionDigits() < 19,
+        "Fraction digits must be between 0 and 18");
+    Assert.notNull(settings.getRounding(), "Rounding mode must be provided");
+
+    this.settings = settings;
+    this.calculators = calculators(calculationEngine, settings);
+  }
+
+  /**
+   * Re-score all transactions of given input file.
+   *
+   * @param input transaction file
+   * @param output file of customer point totals, replaced if exists
+   * @return
+   * @throws IOException
+   */
+  public Summary run(Path input, Path output) throws IOException {
+    Assert.notNull(input, "Input path must be provided");
+    Assert.notNull(output, "Output path must be provided");
+
+    long start = System.nanoTime();
+    ForkJoinPool pool = new ForkJoinPool(settings.getParallelism());
+    try (FileChannel channel = FileChannel.open(input, READ)) {
+      long records = TransactionFile.records(channel);
+      PointTotals totals = pool.invoke(new RescoreTask(channel, 0, records));
+      totals.writeTo(output);
+      return new Summary(records, totals.size(), Duration.ofNanos(System.nanoTime() - start));
+    }
+    catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Read output file of {@link #run(Path, Path)}, streamed through fixed size buffer so that file of any size
+   * could be read.
+   *
+   * @param output
+   * @return
+   * @throws IOException
+   */
+  public static Map<Long, Long> readTotals(Path output) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(TOTAL_SIZE * 4096);
+    try (FileChannel channel = FileChannel.open(output, READ)) {
+      Map<Long, Long> totals = new HashMap<>();
+      while (channel.read(buffer) >= 0) {
+        buffer.flip();
+        while (buffer.remaining() >= TOTAL_SIZE) {
+          totals.put(buffer.getLong(), buffer.getLong());
+        }
+        buffer.compact();
+      }
+      return totals;
+    }
+  }
+
+  private static PointCalculator[] calculators(LoyaltyCalculationEngine calculationEngine, Settings settings) {
+    MembershipTier[] tiers = MembershipTier.values();
+    PointCalculator[] calculators = new PointCalculator[(tiers.length + 1) * 2];
+    for (int tier = 0; tier <= tiers.length; tier++) {
+      for (int flags = 0; flags < 2; flags++) {
+        String domain = (flags & INTERNAL_DOMAIN) != 0 ? settings.getInternalDomain() : settings.getExternalDomain();
+        CustomerProfile representative = CustomerProfile.builder()
+            .title("Mr").fullName("Rescoring Customer")
+            .emailAddress("customer@" + domain)
+            .memberTier(tier == 0 ? null : tiers[tier - 1])
+            .build();
+
+        Set<CustomerFact<?>> facts = calculationEngine.facts(representative);
+        if (!facts.isEmpty()) {
+          throw new IllegalStateException("Rescoring cannot load customer facts, but " + representative.getMemberTier()
+              + " customer with domain " + domain + " calculated using rules depending on " + facts);
+        }
+
+        LoyaltyCalculator calculator = calculationEngine.calculator(representative, CustomerFacts.empty());
+        if (!(calculator instanceof PointCalculator)) {
+          throw new IllegalStateException("Rescoring requires point calculator, but " + representative.getMemberTier()
+              + " customer with domain " + domain + " calculated using " + calculator.getClass().getName());
+        }
+        calculators[tier * 2 + flags] = (PointCalculator) calculator;
+      }
+    }
+    return calculators;
+  }
+
+  /**
+   * Score records of given range, splitting range until no more than configured chunk records.
+   */
+  private class RescoreTask extends RecursiveTask<PointTotals> {
+    private final FileChannel channel;
+    private final long from;
+    private final long to;
+
+    RescoreTask(FileChannel channel, long from, long to) {
+      this.channel = channel;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected PointTotals compute() {
+      if (to - from <= settings.getChunkRecords()) {
+        return score();
+      }
+
+      long middle = (from + to) >>> 1;
+      RescoreTask left = new RescoreTask(channel, from, middle);
+      left.fork();
+      PointTotals right = new RescoreTask(channel, middle, to).compute();
+      return left.join().merge(right);
+    }
+
+    private PointTotals score() {
+      MappedByteBuffer buffer;
+      try {
+        buffer = channel.map(READ_ONLY, from * RECORD_SIZE, (to - from) * RECORD_SIZE);
+      }
+      catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      int fractionDigits = settings.getFractionDigits();
+      RoundingMode rounding = settings.getRounding();
+      PointTotals totals = new PointTotals(1 << 12);
+      int limit = buffer.limit();
+      for (int offset = 0; offset < limit; offset += RECORD_SIZE) {
+        int tier = buffer.get(offset + TIER_OFFSET);
+        int flags = buffer.get(offset + FLAGS_OFFSET) & INTERNAL_DOMAIN;
+        if (tier < 0 || tier * 2 >= calculators.length) {
+          throw new IllegalStateException("Corrupted transaction record " + (from + offset / RECORD_SIZE));
+        }
+        long amount = buffer.getLong(offset + AMOUNT_OFFSET);
+        totals.add(buffer.getLong(offset), calculators[tier * 2 + flags].points(amount, fractionDigits, rounding));
+      }
+      return totals;
+    }
+  }
+
+  /**
+   * Open addressing map of customer id to total points, with {@link Long#MIN_VALUE} as empty key.
+   */
+  static final class PointTotals {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+
+    PointTotals(int capacity) {
+      Assert.isTrue(Integer.bitCount(capacity) == 1, "Capacity must be power of two");
+      this.keys = new long[capacity];
+      this.values = new long[capacity];
+      Arrays.fill(keys, EMPTY);
+    }
+
+    void add(long key, long value) {
+      if (key == EMPTY) {
+        throw new IllegalArgumentException("Invalid customer id " + key);
+      }
+
+      int mask = keys.length - 1;
+      int index = index(key, mask);
+      while (true) {
+        long current = keys[index];
+        if (current == key) {
+          values[index] += value;
+          return;
+        }
+        if (current == EMPTY) {
+          keys[index] = key;
+          values[index] = value;
+          if (++size > (keys.length >>> 1) + (keys.length >>> 2)) {
+            resize();
+          }
+          return;
+        }
+        index = (index + 1) & mask;
+      }
+    }
+
+    int size() {
+      return size;
+    }
+
+    /**
+     * Merge the smaller of this and other totals into the larger one.
+     */
+    PointTotals merge(PointTotals other) {
+      PointTotals target = (size >= other.size) ? this : other;
+      PointTotals source = (target == this) ? other : this;
+      for (int index = 0; index < source.keys.length; index++) {
+        if (source.keys[index] != EMPTY) {
+          target.add(source.keys[index], source.values[index]);
+        }
+      }
+      return target;
+    }
+
+    void writeTo(Path output) throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(TOTAL_SIZE * 4096);
+      try (FileChannel channel = FileChannel.open(output, CREATE, WRITE, TRUNCATE_EXISTING)) {
+        for (int index = 0; index < keys.length; index++) {
+          if (keys[index] == EMPTY) {
+            continue;
+          }
+          if (buffer.remaining() < TOTAL_SIZE) {
+            flush(channel, buffer);
+          }
+          buffer.putLong(keys[index]).putLong(values[index]);
+        }
+        flush(channel, buffer);
+      }
+    }
+
+    private void resize() {
+      long[] keys = this.keys;
+      long[] values = this.values;
+      this.keys = new long[keys.length << 1];
+      this.values = new long[values.length << 1];
+      Arrays.fill(this.keys, EMPTY);
+      this.size = 0;
+      for (int index = 0; index < keys.length; index++) {
+        if (keys[index] != EMPTY) {
+          add(keys[index], values[index]);
+        }
+      }
+    }
+
+    private static int index(long key, int mask) {
+      long hash = key * 0x9E3779B97F4A7C15L;
+      return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+
+  @Value
+  @Getter
+  public static class Summary {
+    long records;
+    long customers;
+    Duration elapsed;
+  }
+
+  @Value
+  @Getter
+  @lombok.Builder(builderClassName = "Builder")
+  public static class Settings {
+    /**
+     * Email domain of customers flagged with {@link TransactionFile#INTERNAL_DOMAIN}.
+     */
+    @lombok.Builder.Default
+    String internalDomain = "tiket.com";
+
+    @lombok.Builder.Default
+    String externalDomain = "example.com";
+
+    /**
+     * Number of fraction digits of transaction amount in minor units.
+     */
+    @lombok.Builder.Default
+    int fractionDigits = 0;
+
+    /**
+     * Rounding of each earning factor's points.
+     */
+    @lombok.Builder.Default
+    RoundingMode rounding = RoundingMode.DOWN;
+
+    /**
+     * Maximum number of records mapped and scored by single fork join task.
+     */
+    @lombok.Builder.Default
+    int chunkRecords = 1 << 20;
+
+    @lombok.Builder.Default
+    int parallelism = Runtime.getRuntime().availableProcessors();
+  }
+}
@@ -0,0 +1,420 @@
+package com.tiket.sharing.fp.builder;
+
+import static java.time.Duration.ofDays;
+
+import com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.LoyaltyCalculator;
+import com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.TierPredicate;
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.MembershipTier;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import lombok.Getter;
+import lombok.Value;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+
+/**
+ * Immutable, versioned snapshot of calculation rules of {@link LoyaltyCalculationEngine.DefaultCalculationEngine}.
+ * Every modification creates new rule set, leaving this one untouched.
+ *
+ * Rules with {@link TierPredicate} (e.g. {@link LoyaltyCalculationEngine#basicMembership()}) are pre-partitioned
+ * per {@link MembershipTier}, so only rules of customer's tier and rules with custom predicate are evaluated.
+ *
+ * Each rule counts its evaluations and matches, and samples its evaluation time, see {@link #statistics()}.
+ * Contiguous rules declared mutually exclusive could be reordered by their hit rate divided by their cost,
+ * see {@link #reordered()}, without changing which rule matches.
+ *
+ * @author zakyalvan
+ */
+public final class RuleSet {
+  private static final RuleSet EMPTY = new RuleSet(0, new CalculationRule[0], 0, Clock.systemDefaultZone());
+
+  /**
+   * Evaluation time of one in every 32 evaluations sampled.
+   */
+  private static final int SAMPLE_MASK = 31;
+
+  private final long version;
+  private final CalculationRule[] rules;
+  private final double defaultFactor;
+  private final LoyaltyCalculator defaultCalculator;
+  private final Clock clock;
+
+  private final Map<MembershipTier, CalculationRule[]> tierRules;
+  private final CalculationRule[] untieredRules;
+
+  private RuleSet(long version, CalculationRule[] rules, double defaultFactor, Clock clock) {
+    this(version, rules, defaultFactor, LoyaltyCalculator.earningFactor(defaultFactor, ofDays(100)).withClock(clock),
+        clock);
+  }
+  private RuleSet(long version, CalculationRule[] rules, double defaultFactor, LoyaltyCalculator defaultCalculator,
+      Clock clock) {
+    this.version = version;
+    this.rules = rules;
+    this.defaultFactor = defaultFactor;
+    this.defaultCalculator = defaultCalculator;
+    this.clock = clock;
+
+    Map<MembershipTier, List<CalculationRule>> partitions = new EnumMap<>(MembershipTier.class);
+    for (MembershipTier tier : MembershipTier.values()) {
+      partitions.put(tier, new ArrayList<>());
+    }
+    List<CalculationRule> untiered = new ArrayList<>();
+    for (CalculationRule rule : rules) {
+      if (rule.tier != null) {
+        partitions.get(rule.tier).add(rule);
+      }
+      else {
+        partitions.values().forEach(partition -> partition.add(rule));
+        untiered.add(rule);
+      }
+    }
+
+    Map<MembershipTier, CalculationRule[]> tierRules = new EnumMap<>(MembershipTier.class);
+    partitions.forEach((tier, partition) -> tierRules.put(tier, partition.toArray(new CalculationRule[0])));
+    this.tierRules = tierRules;
+    this.untieredRules = untiered.toArray(new CalculationRule[0]);
+  }
+  private RuleSet(RuleSet source, Map<MembershipTier, CalculationRule[]> tierRules, CalculationRule[] untieredRules) {
+    this.version = source.version;
+    this.rules = source.rules;
+    this.defaultFactor = source.defaultFactor;
+    this.defaultCalculator = source.defaultCalculator;
+    this.clock = source.clock;
+    this.tierRules = tierRules;
+    this.untieredRules = untieredRules;
+  }
+
+  public static RuleSet empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Select calculator of first rule matching given customer, or calculator of default factor.
+   * Rules with {@link FactPredicate} evaluated using default value of each fact.
+   *
+   * @param customer
+   * @return
+   */
+  public LoyaltyCalculator calculator(CustomerProfile customer) {
+    return calculator(customer, CustomerFacts.empty());
+  }
+
+  /**
+   * Select calculator of first rule matching given customer and facts, or calculator of default factor.
+   *
+   * @param customer
+   * @param facts
+   * @return
+   */
+  public LoyaltyCalculator calculator(CustomerProfile customer, CustomerFacts facts) {
+    return select(rules(customer), 0, customer, facts);
+  }
+
+  /**
+   * Select calculator of first rule matching given customer, without blocking. When rule with {@link FactPredicate}
+   * reached before any rule matched, selection of that and remaining rules deferred until facts needed by them
+   * loaded from given source, once per returned calculator.
+   *
+   * @param customer
+   * @param factSource
+   * @return
+   */
+  public LoyaltyCalculator calculator(CustomerProfile customer, CustomerFactSource factSource) {
+    Assert.notNull(factSource, "Customer fact source must be provided");
+
+    CalculationRule[] rules = rules(customer);
+    for (int index = 0; index < rules.length; index++) {
+      CalculationRule rule = rules[index];
+      if (!rule.facts.isEmpty()) {
+        return deferred(rules, index, customer, factSource);
+      }
+      if (rule.matches(customer, CustomerFacts.empty())) {
+        return rule.calculator;
+      }
+    }
+    return defaultCalculator;
+  }
+
+  /**
+   * Facts which calculator selection of given customer depends on, i.e. facts of rules evaluated before any rule
+   * without {@link FactPredicate} matched.
+   *
+   * @param customer
+   * @return
+   */
+  public Set<CustomerFact<?>> facts(CustomerProfile customer) {
+    Set<CustomerFact<?>> facts = new HashSet<>();
+    for (CalculationRule rule : rules(customer)) {
+      if (!rule.facts.isEmpty()) {
+        facts.addAll(rule.facts);
+      }
+      else if (rule.matches(customer, CustomerFacts.empty())) {
+        break;
+      }
+    }
+    return facts;
+  }
+
+  private CalculationRule[] rules(CustomerProfile customer) {
+    MembershipTier tier = customer.getMemberTier();
+    return (tier != null) ? tierRules.get(tier) : untieredRules;
+  }
+
+  private LoyaltyCalculator select(CalculationRule[] rules, int from, CustomerProfile customer, CustomerFacts facts) {
+    for (int index = from; index < rules.length; index++) {
+      if (rules[index].matches(customer, facts)) {
+        return rules[index].calculator;
+      }
+    }
+    return defaultCalculator;
+  }
+
+  private LoyaltyCalculator deferred(CalculationRule[] rules, int from, CustomerProfile customer,
+      CustomerFactSource factSource) {
+    Set<CustomerFact<?>> facts = new HashSet<>();
+    for (int index = from; index < rules.length; index++) {
+      facts.addAll(rules[index].facts);
+    }
+
+    Mono<LoyaltyCalculator> selected = factSource.facts(customer, facts)
+        .map(values -> select(rules, from, customer, values))
+        .cache();
+    return amount -> selected.flatMap(calculator -> calculator.calculate(amount));
+  }
+
+  /**
+   * Copy of this rule set with additional rule, evaluated after existing rules.
+   *
+   * @param predicate
+   * @param calculator
+   * @return
+   */
+  public RuleSet withRule(Predicate<CustomerProfile> predicate, LoyaltyCalculator calculator) {
+    return withRule(predicate, calculator, false);
+  }
+
+  /**
+   * Copy of this rule set with additional rule, evaluated after existing rules. Calculator bound to clock of this
+   * rule set.
+   *
+   * @param predicate
+   * @param calculator
+   * @param exclusive whether rule never matches the same customer as other exclusive rules,
+   * so that contiguous exclusive rules could be reordered
+   * @return
+   */
+  public RuleSet withRule(Predicate<CustomerProfile> predicate, LoyaltyCalculator calculator, boolean exclusive) {
+    Assert.notNull(predicate, "Rule predicate must be provided");
+    Assert.notNull(calculator, "Rule calculator must be provided");
+
+    CalculationRule[] rules = Arrays.copyOf(this.rules, this.rules.length + 1);
+    rules[this.rules.length] = new CalculationRule(this.rules.length + 1, predicate, calculator.withClock(clock),
+        exclusive);
+    return new RuleSet(version + 1, rules, defaultFactor, defaultCalculator, clock);
+  }
+  public RuleSet withDefaultFactor(double factor) {
+    return new RuleSet(version + 1, rules, factor, clock);
+  }
+  RuleSet withVersion(long version) {
+    return new RuleSet(version, rules, defaultFactor, defaultCalculator, clock);
+  }
+
+  /**
+   * Copy of this rule set, with calculator of every rule creating earnings using given clock, see
+   * {@link LoyaltyCalculator#withClock(Clock)}. Rules of the copy evaluated in registration order, with statistics
+   * starting over.
+   *
+   * @param clock
+   * @return
+   */
+  public RuleSet withClock(Clock clock) {
+    Assert.notNull(clock, "Clock must be provided");
+    if (clock.equals(this.clock)) {
+      return this;
+    }
+
+    CalculationRule[] rules = new CalculationRule[this.rules.length];
+    for (int index = 0; index < rules.length; index++) {
+      rules[index] = this.rules[index].withCalculator(this.rules[index].calculator.withClock(clock));
+    }
+    return new RuleSet(version, rules, defaultFactor, clock);
+  }
+
+  /**
+   * Copy of this rule set, with each run of contiguous exclusive rules of each tier reordered by descending
+   * hit rate divided by average evaluation cost, based on statistics collected so far. Version kept as is,
+   * because the same rule still matches each customer.
+   *
+   * @return
+   */
+  public RuleSet reordered() {
+    Map<CalculationRule, Double> scores = new IdentityHashMap<>();
+    for (CalculationRule rule : rules) {
+      scores.put(rule, rule.score());
+    }
+
+    Map<MembershipTier, CalculationRule[]> tierRules = new EnumMap<>(MembershipTier.class);
+    this.tierRules.forEach((tier, partition) -> tierRules.put(tier, reordered(partition, scores)));
+    return new RuleSet(this, tierRules, reordered(untieredRules, scores));
+  }
+
+  private static CalculationRule[] reordered(CalculationRule[] partition, Map<CalculationRule, Double> scores) {
+    CalculationRule[] reordered = partition.clone();
+    int start = 0;
+    while (start < reordered.length) {
+      int end = start;
+      while (end < reordered.length && reordered[end].exclusive) {
+        end++;
+      }
+      if (end - start > 1) {
+        Arrays.sort(reordered, start, end, (first, second) -> Double.compare(scores.get(second), scores.get(first)));
+      }
+      start = end + 1;
+    }
+    return reordered;
+  }
+
+  /**
+   * Statistics of each rule, in registration order.
+   *
+   * @return
+   */
+  public List<RuleStatistics> statistics() {
+    List<RuleStatistics> statistics = new ArrayList<>(rules.length);
+    for (CalculationRule rule : rules) {
+      statistics.add(rule.statistics());
+    }
+    return Collections.unmodifiableList(statistics);
+  }
+
+  public long getVersion() {
+    return version;
+  }
+  public int size() {
+    return rules.length;
+  }
+  public double getDefaultFactor() {
+    return defaultFactor;
+  }
+
+  /**
+   * Calculation rule, with condition evaluated after customer's tier matched. Null condition means always matched.
+   */
+  private static final class CalculationRule {
+    private final int order;
+    private final MembershipTier tier;
+    private final Predicate<CustomerProfile> condition;
+    private final Set<CustomerFact<?>> facts;
+    private final LoyaltyCalculator calculator;
+    private final boolean exclusive;
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder sampledNanos = new LongAdder();
+
+    private CalculationRule(int order, Predicate<CustomerProfile> predicate, LoyaltyCalculator calculator,
+        boolean exclusive) {
+      this.order = order;
+      if (predicate instanceof TierPredicate) {
+        this.tier = ((TierPredicate) predicate).getTier();
+        this.condition = ((TierPredicate) predicate).getCondition();
+      }
+      else {
+        this.tier = null;
+        this.condition = predicate;
+      }
+      this.facts = (condition == null) ? Collections.emptySet() : FactPredicate.factsOf(condition);
+      this.calculator = calculator;
+      this.exclusive = exclusive;
+    }
+    private CalculationRule(CalculationRule source, LoyaltyCalculator calculator) {
+      this.order = source.order;
+      this.tier = source.tier;
+      this.condition = source.condition;
+      this.facts = source.facts;
+      this.calculator = calculator;
+      this.exclusive = source.exclusive;
+    }
+
+    CalculationRule withCalculator(LoyaltyCalculator calculator) {
+      return new CalculationRule(this, calculator);
+    }
+
+    boolean matches(CustomerProfile customer, CustomerFacts facts) {
+      boolean matched;
+      if ((ThreadLocalRandom.current().nextInt() & SAMPLE_MASK) == 0) {
+        long start = System.nanoTime();
+        matched = evaluate(customer, facts);
+        sampledNanos.add(System.nanoTime() - start);
+        samples.increment();
+      }
+      else {
+        matched = evaluate(customer, facts);
+      }
+
+      evaluations.increment();
+      if (matched) {
+        matches.increment();
+      }
+      return matched;
+    }
+
+    private boolean evaluate(CustomerProfile customer, CustomerFacts facts) {
+      return condition == null || FactPredicate.evaluate(condition, customer, facts);
+    }
+
+    /**
+     * Hit rate divided by average cost, i.e. number of matches per evaluation nanosecond.
+     */
+    double score() {
+      RuleStatistics statistics = statistics();
+      return statistics.getHitRate() / Math.max(statistics.getAverageNanos(), 1);
+    }
+
+    RuleStatistics statistics() {
+      long evaluations = this.evaluations.sum();
+      long matches = this.matches.sum();
+      long samples = this.samples.sum();
+      return new RuleStatistics(order, tier, exclusive, evaluations, matches,
+          (evaluations == 0) ? 0 : (double) matches / evaluations,
+          (samples == 0) ? 0 : (double) sampledNanos.sum() / samples);
+    }
+  }
+
+  @Value
+  @Getter
+  public static class RuleStatistics {
+    /**
+     * Registration order of rule, starting from 1.
+     */
+    int order;
+
+    /**
+     * Tier of rule, null for rule without {@link TierPredicate}.
+     */
+    MembershipTier tier;
+
+    boolean exclusive;
+    long evaluations;
+    long matches;
+    double hitRate;
+
+    /**
+     * Average of sampled evaluation time, in nanoseconds.
+     */
+    double averageNanos;
+  }
+}
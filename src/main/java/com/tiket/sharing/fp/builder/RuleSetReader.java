@@ -0,0 +1,85 @@
+package com.tiket.sharing.fp.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.tiket.sharing.fp.model.CustomerProfile;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Read {@link RuleSet} from external source, e.g. rule file watched by {@link RuleSetWatcher}.
+ *
+ * @author zakyalvan
+ */
+@FunctionalInterface
+public interface RuleSetReader {
+  RuleSet read(Reader source) throws IOException;
+
+  default RuleSet read(Path path) throws IOException {
+    try (Reader source = Files.newBufferedReader(path, UTF_8)) {
+      return read(source);
+    }
+  }
+
+  /**
+   * Reader of line based rule text. Rules evaluated in declaration order, first matching rule applies, e.g.
+   *
+   * <pre>
+   * # comment
+   * rule basic and first-transaction => factor 0.02 120d + constant 75
+   * rule basic and domain tiket.com => factor 0.02 120d + factor 0.005
+   * exclusive rule gold and domain tiket.com => factor 0.04 150d
+   * exclusive rule gold and domain partner.com => factor 0.035 150d
+   * rule gold => factor 0.03 150d + constant 100 min 1000000
+   * rule * => factor 0.01
+   * default 0.005
+   * </pre>
+   *
+   * Condition is one or more terms joined by 'and', each term is membership tier, 'domain' followed by customer's
+   * email domain, name of given named conditions, 'first-transaction' (see {@link CustomerFact#FIRST_TRANSACTION}),
+   * or '*' for any customer. Rule prefixed with 'exclusive' never matches the same customer as other exclusive rules,
+   * so that contiguous exclusive rules could be reordered, see {@link RuleSet#reordered()}.
+   * Earnings are sum of factor or constant earnings, each optionally followed by validity in days (100 days if not
+   * provided) and 'min' followed by minimum transaction amount.
+   *
+   * Conditions compiled into {@link LoyaltyCalculationEngine.TierPredicate} and earnings into
+   * {@link LoyaltyCalculationEngine.LinearCalculator}, evaluated as fast as equivalent hand-written rules.
+   *
+   * @param conditions named custom conditions
+   * @return
+   */
+  static RuleSetReader text(Map<String, Predicate<CustomerProfile>> conditions) {
+    return new TextRuleSetReader(conditions);
+  }
+
+  /**
+   * Reader of line based rule text without custom named conditions.
+   *
+   * @return
+   * @see #text(Map)
+   */
+  static RuleSetReader text() {
+    return text(Collections.emptyMap());
+  }
+
+  /**
+   * Thrown on invalid rule text.
+   */
+  class RuleSyntaxException extends IllegalArgumentException {
+    private final int line;
+
+    RuleSyntaxException(int line, String message, Throwable cause) {
+      super("Invalid rule at line " + line + ", " + message, cause);
+      this.line = line;
+    }
+
+    public int getLine() {
+      return line;
+    }
+  }
+}
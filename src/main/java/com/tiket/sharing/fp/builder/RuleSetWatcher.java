@@ -0,0 +1,129 @@
+package com.tiket.sharing.fp.builder;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.DefaultCalculationEngine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.Assert;
+
+/**
+ * Watch rule file, publishing newly read {@link RuleSet} into {@link DefaultCalculationEngine} on every change.
+ * Invalid rule file is logged and ignored, previously published rule set stays in use. Rule file should be replaced
+ * atomically (i.e. written into other file then moved), otherwise partially written file might be published.
+ *
+ * @author zakyalvan
+ */
+@Slf4j
+public class RuleSetWatcher implements Closeable {
+  private final DefaultCalculationEngine calculationEngine;
+  private final Path ruleFile;
+  private final RuleSetReader ruleSetReader;
+
+  private final Timer swapTimer;
+  private final Counter failures;
+
+  private WatchService watchService;
+  private Thread watcher;
+
+  public RuleSetWatcher(DefaultCalculationEngine calculationEngine, Path ruleFile, RuleSetReader ruleSetReader) {
+    this(calculationEngine, ruleFile, ruleSetReader, Metrics.globalRegistry);
+  }
+  public RuleSetWatcher(DefaultCalculationEngine calculationEngine, Path ruleFile, RuleSetReader ruleSetReader,
+      MeterRegistry meterRegistry) {
+    Assert.notNull(calculationEngine, "Calculation engine must be provided");
+    Assert.notNull(ruleFile, "Rule file must be provided");
+    Assert.notNull(ruleSetReader, "Rule set reader must be provided");
+    Assert.notNull(meterRegistry, "Meter registry must be provided");
+
+    this.calculationEngine = calculationEngine;
+    this.ruleFile = ruleFile.toAbsolutePath();
+    this.ruleSetReader = ruleSetReader;
+
+    this.swapTimer = Timer.builder("loyalty.rules.swap")
+        .description("Latency of reading, compiling and publishing rule set")
+        .register(meterRegistry);
+    this.failures = Counter.builder("loyalty.rules.failures")
+        .description("Number of rule file failed to be read")
+        .register(meterRegistry);
+    Gauge.builder("loyalty.rules.version", calculationEngine, engine -> engine.ruleSet().getVersion())
+        .description("Version of currently published rule set")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Publish rules of current rule file, then start watching it for changes.
+   *
+   * @return
+   * @throws IOException when initial rule file can't be read
+   */
+  public synchronized RuleSetWatcher start() throws IOException {
+    Assert.state(watcher == null, "Rule set watcher already started");
+
+    long start = System.nanoTime();
+    calculationEngine.publish(ruleSetReader.read(ruleFile));
+    swapTimer.record(System.nanoTime() - start, NANOSECONDS);
+    watchService = ruleFile.getFileSystem().newWatchService();
+    ruleFile.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+
+    watcher = new Thread(this::watch, "rule-set-watcher");
+    watcher.setDaemon(true);
+    watcher.start();
+    return this;
+  }
+
+  private void watch() {
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        WatchKey key = watchService.take();
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+          changed |= event.kind() == OVERFLOW || ruleFile.getFileName().equals(event.context());
+        }
+        key.reset();
+        if (changed) {
+          reload();
+        }
+      }
+    }
+    catch (InterruptedException | ClosedWatchServiceException e) {
+      log.debug("Stop watching rule file {}", ruleFile);
+    }
+  }
+
+  void reload() {
+    long start = System.nanoTime();
+    try {
+      RuleSet published = calculationEngine.publish(ruleSetReader.read(ruleFile));
+      swapTimer.record(System.nanoTime() - start, NANOSECONDS);
+      log.info("Published rule set version {} with {} rules", published.getVersion(), published.size());
+    }
+    catch (Exception e) {
+      failures.increment();
+      log.warn("Failed to read rule file {}, keep using previous rule set", ruleFile, e);
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (watcher != null) {
+      watcher.interrupt();
+      watchService.close();
+      watcher = null;
+    }
+  }
+}
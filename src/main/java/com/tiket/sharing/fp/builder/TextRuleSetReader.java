@@ -0,0 +1,244 @@
+package com.tiket.sharing.fp.builder;
+
+import static com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.LoyaltyCalculator.constantEarning;
+import static com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.LoyaltyCalculator.earningFactor;
+
+import com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.LinearCalculator;
+import com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.LoyaltyCalculator;
+import com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.TierPredicate;
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.MembershipTier;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import org.springframework.util.Assert;
+
+/**
+ * @author zakyalvan
+ * @see RuleSetReader#text()
+ */
+final class TextRuleSetReader implements RuleSetReader {
+  private static final Duration DEFAULT_VALIDITY = Duration.ofDays(100);
+  private static final Set<String> RESERVED = new HashSet<>(Arrays.asList("*", "and", "domain", "exclusive", "=>"));
+
+  private final Map<String, Predicate<CustomerProfile>> conditions;
+
+  TextRuleSetReader(Map<String, Predicate<CustomerProfile>> conditions) {
+    Assert.notNull(conditions, "Named conditions must be provided");
+    conditions.keySet().forEach(name -> Assert.isTrue(!RESERVED.contains(name), "Reserved condition name " + name));
+    this.conditions = new HashMap<>();
+    this.conditions.put(CustomerFact.FIRST_TRANSACTION.getName(),
+        FactPredicate.isTrue(CustomerFact.FIRST_TRANSACTION));
+    this.conditions.putAll(conditions);
+  }
+
+  @Override
+  public RuleSet read(Reader source) throws IOException {
+    BufferedReader lines = new BufferedReader(source);
+    RuleSet ruleSet = RuleSet.empty();
+    int number = 0;
+    for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+      number++;
+      int comment = line.indexOf('#');
+      String text = (comment < 0 ? line : line.substring(0, comment)).trim();
+      if (text.isEmpty()) {
+        continue;
+      }
+
+      try {
+        ruleSet = parse(ruleSet, new Tokens(text));
+      }
+      catch (RuntimeException e) {
+        throw new RuleSyntaxException(number, e.getMessage(), e);
+      }
+    }
+    return ruleSet;
+  }
+
+  private RuleSet parse(RuleSet ruleSet, Tokens tokens) {
+    boolean exclusive = tokens.accept("exclusive");
+    String keyword = tokens.next();
+    Assert.isTrue(!exclusive || "rule".equals(keyword), "'exclusive' must be followed by 'rule'");
+    switch (keyword) {
+      case "default":
+        RuleSet defaulted = ruleSet.withDefaultFactor(new BigDecimal(tokens.next()).doubleValue());
+        tokens.end();
+        return defaulted;
+      case "rule":
+        Predicate<CustomerProfile> condition = condition(tokens);
+        tokens.expect("=>");
+        return ruleSet.withRule(condition, earnings(tokens), exclusive);
+      default:
+        throw new IllegalArgumentException("unknown keyword '" + keyword + "'");
+    }
+  }
+
+  /**
+   * Compile condition, i.e. terms joined by 'and', into {@link TierPredicate} if membership tier included,
+   * so that rule indexed by tier.
+   */
+  private Predicate<CustomerProfile> condition(Tokens tokens) {
+    MembershipTier tier = null;
+    String domain = null;
+    List<Predicate<CustomerProfile>> named = new ArrayList<>();
+    do {
+      String term = tokens.next();
+      if ("*".equals(term)) {
+        continue;
+      }
+      if ("domain".equals(term)) {
+        Assert.isNull(domain, "duplicate domain condition");
+        domain = tokens.next();
+        continue;
+      }
+      if (conditions.containsKey(term)) {
+        named.add(conditions.get(term));
+        continue;
+      }
+      Assert.isNull(tier, "duplicate tier condition");
+      tier = MembershipTier.valueOf(term.toUpperCase(Locale.ROOT));
+    }
+    while (tokens.accept("and"));
+
+    if (tier == null) {
+      return new CompiledCondition(domain, named);
+    }
+    if (domain == null && named.isEmpty()) {
+      return TierPredicate.of(tier);
+    }
+    return TierPredicate.of(tier).and(new CompiledCondition(domain, named));
+  }
+
+  private LoyaltyCalculator earnings(Tokens tokens) {
+    LoyaltyCalculator calculator = earning(tokens);
+    while (tokens.accept("+")) {
+      calculator = calculator.thenAccumulate(earning(tokens));
+    }
+    tokens.end();
+    return calculator;
+  }
+
+  private LinearCalculator earning(Tokens tokens) {
+    String type = tokens.next();
+    LinearCalculator calculator;
+    switch (type) {
+      case "factor":
+        BigDecimal factor = new BigDecimal(tokens.next());
+        calculator = earningFactor(factor, validity(tokens));
+        break;
+      case "constant":
+        int points = Integer.parseInt(tokens.next());
+        calculator = constantEarning(points, validity(tokens));
+        break;
+      default:
+        throw new IllegalArgumentException("unknown earning '" + type + "'");
+    }
+    return tokens.accept("min") ? calculator.minimumAmount(Long.parseLong(tokens.next())) : calculator;
+  }
+
+  private Duration validity(Tokens tokens) {
+    String days = tokens.peek();
+    if (days == null || !days.matches("\\d+d")) {
+      return DEFAULT_VALIDITY;
+    }
+    tokens.next();
+    return Duration.ofDays(Long.parseLong(days.substring(0, days.length() - 1)));
+  }
+
+  /**
+   * Conjunction of email domain and named conditions, checked inline instead of chaining {@link Predicate#and}.
+   */
+  static final class CompiledCondition implements FactPredicate {
+    private final String domainSuffix;
+    private final Predicate<CustomerProfile>[] named;
+    private final Set<CustomerFact<?>> facts;
+
+    @SuppressWarnings("unchecked")
+    CompiledCondition(String domain, List<Predicate<CustomerProfile>> named) {
+      this.domainSuffix = (domain == null) ? null : "@" + domain;
+      this.named = named.toArray(new Predicate[0]);
+
+      Set<CustomerFact<?>> facts = new HashSet<>();
+      named.forEach(condition -> facts.addAll(FactPredicate.factsOf(condition)));
+      this.facts = Collections.unmodifiableSet(facts);
+    }
+
+    @Override
+    public Set<CustomerFact<?>> facts() {
+      return facts;
+    }
+
+    @Override
+    public boolean test(CustomerProfile customer, CustomerFacts values) {
+      if (domainSuffix != null) {
+        String email = customer.getEmailAddress();
+        if (email == null || !email.regionMatches(true, email.length() - domainSuffix.length(),
+            domainSuffix, 0, domainSuffix.length())) {
+          return false;
+        }
+      }
+      for (Predicate<CustomerProfile> condition : named) {
+        if (!FactPredicate.evaluate(condition, customer, values)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Whitespace separated tokens of single line.
+   */
+  static final class Tokens {
+    private final String[] tokens;
+    private int position;
+
+    Tokens(String text) {
+      this.tokens = text.split("\\s+");
+    }
+
+    String peek() {
+      return position < tokens.length ? tokens[position] : null;
+    }
+
+    String next() {
+      if (position >= tokens.length) {
+        throw new IllegalArgumentException("unexpected end of rule");
+      }
+      return tokens[position++];
+    }
+
+    boolean accept(String token) {
+      if (token.equals(peek())) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    void expect(String token) {
+      String actual = next();
+      if (!token.equals(actual)) {
+        throw new IllegalArgumentException("expected '" + token + "' but found '" + actual + "'");
+      }
+    }
+
+    void end() {
+      if (position < tokens.length) {
+        throw new IllegalArgumentException("unexpected '" + tokens[position] + "'");
+      }
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package com.tiket.sharing.fp.builder;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.tiket.sharing.fp.model.MembershipTier;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import org.springframework.util.Assert;
+
+/**
+ * Compact binary transaction file, re-scored by {@link LoyaltyRescoringJob}. File contains only fixed size records
+ * of {@link #RECORD_SIZE} bytes, in big endian order:
+ *
+ * <pre>
+ * offset 0  : long customer id, must not be {@link Long#MIN_VALUE}
+ * offset 8  : long transaction amount, in minor units
+ * offset 16 : byte membership tier, 0 for no tier, otherwise ordinal of {@link MembershipTier} plus one
+ * offset 17 : byte flags, e.g. {@link #INTERNAL_DOMAIN}
+ * </pre>
+ *
+ * @author zakyalvan
+ */
+public final class TransactionFile {
+  public static final int RECORD_SIZE = 18;
+  static final int AMOUNT_OFFSET = 8;
+  static final int TIER_OFFSET = 16;
+  static final int FLAGS_OFFSET = 17;
+
+  /**
+   * Flag of customer with internal email domain.
+   */
+  public static final byte INTERNAL_DOMAIN = 1;
+
+  private TransactionFile() {
+  }
+
+  /**
+   * Number of records in given transaction file.
+   *
+   * @param channel
+   * @return
+   * @throws IOException
+   */
+  public static long records(FileChannel channel) throws IOException {
+    long size = channel.size();
+    if (size % RECORD_SIZE != 0) {
+      throw new IOException("Corrupted transaction file, size " + size + " is not multiple of record size");
+    }
+    return size / RECORD_SIZE;
+  }
+
+  public static Writer writer(Path path) throws IOException {
+    Assert.notNull(path, "Transaction file path must be provided");
+    return new Writer(FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING));
+  }
+
+  /**
+   * Generate transaction file with random records, e.g. for trying out {@link LoyaltyRescoringJob} locally.
+   * Tier and email domain derived from customer id, so that each customer always has the same tier and domain.
+   *
+   * @param path
+   * @param records number of records to be generated
+   * @param customers number of distinct customers
+   * @param seed
+   * @throws IOException
+   */
+  public static void generate(Path path, long records, long customers, long seed) throws IOException {
+    Assert.isTrue(records >= 0, "Number of records must not be negative");
+    Assert.isTrue(customers > 0, "Number of customers must be positive");
+
+    MembershipTier[] tiers = MembershipTier.values();
+    SplittableRandom random = new SplittableRandom(seed);
+    try (Writer writer = writer(path)) {
+      for (long index = 0; index < records; index++) {
+        long customer = random.nextLong(customers);
+        int tier = (int) (customer % (tiers.length + 1));
+        writer.write(customer, random.nextLong(1_000, 5_000_000),
+            tier == 0 ? null : tiers[tier - 1], customer % 20 == 0);
+      }
+    }
+  }
+
+  static byte tier(MembershipTier tier) {
+    return (tier == null) ? 0 : (byte) (tier.ordinal() + 1);
+  }
+
+  /**
+   * Buffered writer of transaction file.
+   */
+  public static final class Writer implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(RECORD_SIZE * 4096);
+
+    private Writer(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    public Writer write(long customerId, long amount, MembershipTier tier, boolean internalDomain) throws IOException {
+      Assert.isTrue(customerId != Long.MIN_VALUE, "Invalid customer id");
+      if (buffer.remaining() < RECORD_SIZE) {
+        flush();
+      }
+      buffer.putLong(customerId)
+          .putLong(amount)
+          .put(tier(tier))
+          .put(internalDomain ? INTERNAL_DOMAIN : 0);
+      return this;
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        flush();
+      }
+      finally {
+        channel.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package com.tiket.sharing.fp.chain;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.tiket.sharing.fp.model.OrderIdentifier;
+import com.tiket.sharing.fp.model.OrderRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.Getter;
+import lombok.Value;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decorate {@link CustomerOrderTracker}, pre-screening duplicate order lookups with local Bloom filter of recently
+ * created orders, so that delegate asked only when order request might be duplicate.
+ *
+ * Filter is time windowed, i.e. created orders are put into current filter, which becomes previous filter after
+ * one window and discarded after another, so an order is remembered for at least one and at most two windows.
+ * Lookup consults both filters. Windows are measured by clock of settings.
+ *
+ * Bloom filter never misses order it has seen, but only sees orders reported through
+ * {@link #orderCreated(OrderRequest, OrderIdentifier)}, so every created order (including those created by other
+ * instances, e.g. consumed from order events) must be reported. Screening only enabled once {@link #warmUp(Flux)}
+ * completed, which should be subscribed only after order reporting wired, until then every lookup is delegated.
+ *
+ * @author zakyalvan
+ */
+public class BloomFilterOrderTracker implements CustomerOrderTracker {
+  private static final Funnel<OrderRequest> REQUEST_FUNNEL = (request, into) -> {
+    String emailAddress = (request.getCustomer() != null) ? request.getCustomer().getEmailAddress() : null;
+    into.putBoolean(emailAddress != null);
+    if (emailAddress != null) {
+      into.putString(emailAddress, UTF_8);
+    }
+    into.putInt(Objects.hashCode(request.getPassengers()));
+    into.putInt(Objects.hashCode(request.getSchedules()));
+  };
+
+  private final CustomerOrderTracker delegate;
+  private final Settings settings;
+  private final Clock clock;
+  private final long windowMillis;
+  private final AtomicReference<Filters> filters;
+  private volatile boolean warmedUp;
+
+  private final Counter screened;
+  private final Counter delegated;
+
+  public BloomFilterOrderTracker(CustomerOrderTracker delegate) {
+    this(delegate, Settings.builder().build(), Metrics.globalRegistry);
+  }
+  public BloomFilterOrderTracker(CustomerOrderTracker delegate, Settings settings, MeterRegistry meterRegistry) {
+    Assert.notNull(delegate, "Delegate order tracker must be provided");
+    Assert.notNull(settings, "Bloom filter settings must be provided");
+    Assert.isTrue(settings.getExpectedInsertions() > 0, "Expected insertions must be positive");
+    Assert.isTrue(settings.getFalsePositiveRate() > 0 && settings.getFalsePositiveRate() < 1,
+        "False positive rate must be between 0 and 1");
+    Assert.isTrue(settings.getWindow() != null && settings.getWindow().toMillis() > 0,
+        "Window must be at least one millisecond");
+    Assert.notNull(settings.getClock(), "Clock must be provided");
+    Assert.notNull(meterRegistry, "Meter registry must be provided");
+
+    this.delegate = delegate;
+    this.settings = settings;
+    this.clock = settings.getClock();
+    this.windowMillis = settings.getWindow().toMillis();
+    this.filters = new AtomicReference<>(new Filters(newFilter(), newFilter(), clock.millis() + windowMillis));
+
+    this.screened = Counter.builder("order.tracker.bloom.screened")
+        .description("Number of duplicate order lookup answered by bloom filter")
+        .register(meterRegistry);
+    this.delegated = Counter.builder("order.tracker.bloom.delegated")
+        .description("Number of duplicate order lookup passed bloom filter to delegate")
+        .register(meterRegistry);
+    Gauge.builder("order.tracker.bloom.fpp", this, tracker -> tracker.filters().current.expectedFpp())
+        .description("Expected false positive rate of current bloom filter")
+        .register(meterRegistry);
+    Gauge.builder("order.tracker.bloom.bytes", this, BloomFilterOrderTracker::memoryBytes)
+        .description("Approximate memory of current and previous bloom filters")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public Mono<OrderIdentifier> duplicateOrder(OrderRequest orderRequest) {
+    return Mono.defer(() -> {
+      if (warmedUp && !filters().mightContain(orderRequest)) {
+        screened.increment();
+        return Mono.empty();
+      }
+      delegated.increment();
+      return delegate.duplicateOrder(orderRequest);
+    });
+  }
+
+  @Override
+  public Mono<Integer> activeCount(String customerEmail) {
+    return delegate.activeCount(customerEmail);
+  }
+
+  /**
+   * Remember order created from given request.
+   *
+   * @param orderRequest
+   * @param identifier
+   */
+  public void orderCreated(OrderRequest orderRequest, OrderIdentifier identifier) {
+    Assert.notNull(orderRequest, "Order request must be provided");
+    filters().current.put(orderRequest);
+  }
+
+  /**
+   * Remember given recently created orders, e.g. on startup, enabling screening once completed.
+   *
+   * @param recentOrders
+   * @return
+   */
+  public Mono<Void> warmUp(Flux<OrderRequest> recentOrders) {
+    Assert.notNull(recentOrders, "Recent orders must be provided");
+    return recentOrders
+        .doOnNext(orderRequest -> filters().current.put(orderRequest))
+        .then(Mono.fromRunnable(() -> warmedUp = true));
+  }
+
+  /**
+   * Current filters, rotated first if window elapsed.
+   */
+  private Filters filters() {
+    Filters filters = this.filters.get();
+    long now = clock.millis();
+    while (now - filters.rotateAt >= 0) {
+      Filters rotated = (now - filters.rotateAt >= windowMillis)
+          ? new Filters(newFilter(), newFilter(), now + windowMillis)
+          : new Filters(newFilter(), filters.current, filters.rotateAt + windowMillis);
+      if (this.filters.compareAndSet(filters, rotated)) {
+        return rotated;
+      }
+      filters = this.filters.get();
+    }
+    return filters;
+  }
+
+  private BloomFilter<OrderRequest> newFilter() {
+    return BloomFilter.create(REQUEST_FUNNEL, settings.getExpectedInsertions(), settings.getFalsePositiveRate());
+  }
+
+  /**
+   * Optimal bit size of filter for configured expected insertions and false positive rate, as used by Guava.
+   */
+  private double memoryBytes() {
+    double bits = -settings.getExpectedInsertions() * Math.log(settings.getFalsePositiveRate())
+        / (Math.log(2) * Math.log(2));
+    return 2 * bits / Byte.SIZE;
+  }
+
+  private static final class Filters {
+    private final BloomFilter<OrderRequest> current;
+    private final BloomFilter<OrderRequest> previous;
+    private final long rotateAt;
+
+    private Filters(BloomFilter<OrderRequest> current, BloomFilter<OrderRequest> previous, long rotateAt) {
+      this.current = current;
+      this.previous = previous;
+      this.rotateAt = rotateAt;
+    }
+
+    boolean mightContain(OrderRequest orderRequest) {
+      return current.mightContain(orderRequest) || previous.mightContain(orderRequest);
+    }
+  }
+
+  @Value
+  @Getter
+  @lombok.Builder(builderClassName = "Builder")
+  public static class Settings {
+    /**
+     * Expected number of created orders per window.
+     */
+    @lombok.Builder.Default
+    long expectedInsertions = 1_000_000;
+
+    /**
+     * False positive rate of each filter when expected insertions reached.
+     */
+    @lombok.Builder.Default
+    double falsePositiveRate = .01;
+
+    /**
+     * Rotation window, order remembered for at least one and at most two windows.
+     */
+    @lombok.Builder.Default
+    Duration window = Duration.ofMinutes(30);
+
+    /**
+     * Clock measuring rotation window.
+     */
+    @lombok.Builder.Default
+    Clock clock = Clock.systemUTC();
+  }
+}
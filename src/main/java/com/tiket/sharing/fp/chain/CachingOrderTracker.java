@@ -0,0 +1,184 @@
+package com.tiket.sharing.fp.chain;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.tiket.sharing.fp.model.OrderIdentifier;
+import com.tiket.sharing.fp.model.OrderRequest;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import lombok.Getter;
+import lombok.Value;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decorate {@link CustomerOrderTracker}, caching duplicate order lookups per order request and active order count
+ * per customer email, in bounded caches evicted by size and time.
+ *
+ * Cached value is the shared lookup {@link Mono} itself, so concurrent lookups of the same key while loading
+ * are collapsed into single call to delegate. Failed lookup is evicted, never cached. Duplicate order lookup finding
+ * no duplicate is evicted too once completed, so only detected duplicates are cached, and order created elsewhere
+ * (e.g. by other instance) is never hidden by cached absence.
+ *
+ * Tracker must be told about every created order through {@link #orderCreated(OrderRequest, OrderIdentifier)},
+ * and about every order no longer active through {@link #invalidate(String)}, otherwise cached values might be stale
+ * until expired.
+ *
+ * @author zakyalvan
+ */
+public class CachingOrderTracker implements CustomerOrderTracker {
+  private final CustomerOrderTracker delegate;
+  private final Cache<OrderRequest, Mono<OrderIdentifier>> duplicateOrders;
+  private final Cache<String, Mono<Integer>> activeCounts;
+  private final Timer duplicateOrderLoads;
+  private final Timer activeCountLoads;
+
+  public CachingOrderTracker(CustomerOrderTracker delegate) {
+    this(delegate, Settings.builder().build(), Metrics.globalRegistry);
+  }
+  public CachingOrderTracker(CustomerOrderTracker delegate, Settings settings, MeterRegistry meterRegistry) {
+    Assert.notNull(delegate, "Delegate order tracker must be provided");
+    Assert.notNull(settings, "Caching settings must be provided");
+    Assert.isTrue(settings.getMaximumSize() > 0, "Maximum size must be positive");
+    Assert.notNull(settings.getDuplicateOrderTtl(), "Duplicate order ttl must be provided");
+    Assert.notNull(settings.getActiveCountTtl(), "Active count ttl must be provided");
+    Assert.notNull(meterRegistry, "Meter registry must be provided");
+
+    this.delegate = delegate;
+    this.duplicateOrders = CacheBuilder.newBuilder()
+        .maximumSize(settings.getMaximumSize())
+        .expireAfterWrite(settings.getDuplicateOrderTtl().toNanos(), NANOSECONDS)
+        .recordStats()
+        .build();
+    this.activeCounts = CacheBuilder.newBuilder()
+        .maximumSize(settings.getMaximumSize())
+        .expireAfterWrite(settings.getActiveCountTtl().toNanos(), NANOSECONDS)
+        .recordStats()
+        .build();
+
+    this.duplicateOrderLoads = loadTimer("duplicate-order", meterRegistry);
+    this.activeCountLoads = loadTimer("active-count", meterRegistry);
+    hitRatio("duplicate-order", duplicateOrders, meterRegistry);
+    hitRatio("active-count", activeCounts, meterRegistry);
+  }
+
+  @Override
+  public Mono<OrderIdentifier> duplicateOrder(OrderRequest orderRequest) {
+    return Mono.defer(() -> cached(duplicateOrders, orderRequest,
+        () -> delegate.duplicateOrder(orderRequest), duplicateOrderLoads, false));
+  }
+
+  @Override
+  public Mono<Integer> activeCount(String customerEmail) {
+    return Mono.defer(() -> cached(activeCounts, customerEmail,
+        () -> delegate.activeCount(customerEmail), activeCountLoads, true));
+  }
+
+  /**
+   * Record order created from given request, so that the same request detected as duplicate without asking delegate,
+   * and active count of its customer reloaded on next lookup.
+   *
+   * @param orderRequest
+   * @param identifier
+   */
+  public void orderCreated(OrderRequest orderRequest, OrderIdentifier identifier) {
+    Assert.notNull(orderRequest, "Order request must be provided");
+    Assert.notNull(identifier, "Order identifier must be provided");
+
+    duplicateOrders.put(orderRequest, Mono.just(identifier));
+    invalidate(orderRequest.getCustomer().getEmailAddress());
+  }
+
+  /**
+   * Evict cached active count of customer identified by given email, e.g. after customer's order completed
+   * or cancelled.
+   *
+   * @param customerEmail
+   */
+  public void invalidate(String customerEmail) {
+    activeCounts.invalidate(customerEmail);
+  }
+
+  public CacheStats duplicateOrderStats() {
+    return duplicateOrders.stats();
+  }
+  public CacheStats activeCountStats() {
+    return activeCounts.stats();
+  }
+
+  private static <K, V> Mono<V> cached(Cache<K, Mono<V>> cache, K key, Supplier<Mono<V>> loader, Timer loads,
+      boolean cacheEmpty) {
+    try {
+      return cache.get(key, () -> load(cache, key, loader, loads, cacheEmpty));
+    }
+    catch (ExecutionException e) {
+      return Mono.error(e.getCause());
+    }
+  }
+
+  private static <K, V> Mono<V> load(Cache<K, Mono<V>> cache, K key, Supplier<Mono<V>> loader, Timer loads,
+      boolean cacheEmpty) {
+    AtomicReference<Mono<V>> self = new AtomicReference<>();
+    Mono<V> loaded = Mono.defer(() -> {
+      long startTime = System.nanoTime();
+      return loader.get()
+          .doFinally(signal -> loads.record(System.nanoTime() - startTime, NANOSECONDS));
+    })
+        .doOnSuccess(value -> {
+          if (value == null && !cacheEmpty) {
+            cache.asMap().remove(key, self.get());
+          }
+        })
+        .doOnError(error -> cache.asMap().remove(key, self.get()))
+        .cache();
+    self.set(loaded);
+    return loaded;
+  }
+
+  private static Timer loadTimer(String cache, MeterRegistry meterRegistry) {
+    return Timer.builder("order.tracker.load")
+        .description("Latency of order tracker lookup on cache miss")
+        .tag("cache", cache)
+        .register(meterRegistry);
+  }
+
+  private static void hitRatio(String name, Cache<?, ?> cache, MeterRegistry meterRegistry) {
+    Gauge.builder("order.tracker.hit.ratio", cache, value -> value.stats().hitRate())
+        .description("Ratio of order tracker lookup served from cache")
+        .tag("cache", name)
+        .register(meterRegistry);
+  }
+
+  @Value
+  @Getter
+  @lombok.Builder(builderClassName = "Builder")
+  public static class Settings {
+    /**
+     * Maximum number of entries of each cache.
+     */
+    @lombok.Builder.Default
+    long maximumSize = 10_000;
+
+    /**
+     * How long detected duplicate order cached. Lookup with no duplicate never cached.
+     */
+    @lombok.Builder.Default
+    Duration duplicateOrderTtl = Duration.ofMinutes(1);
+
+    /**
+     * How long active order count cached, bounding staleness when order completed without
+     * {@link CachingOrderTracker#invalidate(String)}.
+     */
+    @lombok.Builder.Default
+    Duration activeCountTtl = Duration.ofSeconds(10);
+  }
+}
@@ -0,0 +1,93 @@
+package com.tiket.sharing.fp.chain;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Meters of single interceptor of instrumented {@link DefaultInterceptorChain}, tagged by interceptor name.
+ *
+ * <ul>
+ *   <li>order.interceptor.latency, scope 'own', time spent by interceptor before delegating downstream,
+ *   or until terminated if it never delegated</li>
+ *   <li>order.interceptor.latency, scope 'total', time until interceptor terminated, including downstream</li>
+ *   <li>order.interceptor.outcome, outcome 'pass', 'reject' (i.e. {@link RequestInterceptException}), 'error' or
+ *   'cancel', so that outcomes add up to number of evaluations. Error or cancellation after interceptor delegated
+ *   downstream is not attributed to interceptor, counted as 'pass'</li>
+ * </ul>
+ *
+ * @author zakyalvan
+ */
+final class InterceptorMetrics {
+  private final Timer own;
+  private final Timer total;
+  private final Counter passed;
+  private final Counter rejected;
+  private final Counter failed;
+  private final Counter cancelled;
+
+  InterceptorMetrics(String name, MeterRegistry meterRegistry) {
+    this.own = latency(name, "own", meterRegistry);
+    this.total = latency(name, "total", meterRegistry);
+    this.passed = outcome(name, "pass", meterRegistry);
+    this.rejected = outcome(name, "reject", meterRegistry);
+    this.failed = outcome(name, "error", meterRegistry);
+    this.cancelled = outcome(name, "cancel", meterRegistry);
+  }
+
+  void delegated(long startTime) {
+    own.record(System.nanoTime() - startTime, NANOSECONDS);
+  }
+
+  void terminated(long startTime, boolean delegated, Throwable error) {
+    long elapsed = System.nanoTime() - startTime;
+    total.record(elapsed, NANOSECONDS);
+    if (delegated) {
+      passed.increment();
+      return;
+    }
+
+    own.record(elapsed, NANOSECONDS);
+    if (error == null) {
+      passed.increment();
+    }
+    else if (RequestInterceptException.requestInterceptError(error)) {
+      rejected.increment();
+    }
+    else {
+      failed.increment();
+    }
+  }
+
+  void cancelled(long startTime, boolean delegated) {
+    long elapsed = System.nanoTime() - startTime;
+    total.record(elapsed, NANOSECONDS);
+    if (delegated) {
+      passed.increment();
+      return;
+    }
+
+    own.record(elapsed, NANOSECONDS);
+    cancelled.increment();
+  }
+
+  private static Timer latency(String name, String scope, MeterRegistry meterRegistry) {
+    return Timer.builder("order.interceptor.latency")
+        .description("Latency of request interceptor")
+        .tag("interceptor", name)
+        .tag("scope", scope)
+        .publishPercentiles(.5, .95, .99)
+        .publishPercentileHistogram()
+        .register(meterRegistry);
+  }
+
+  private static Counter outcome(String name, String outcome, MeterRegistry meterRegistry) {
+    return Counter.builder("order.interceptor.outcome")
+        .description("Number of request evaluated by interceptor, per outcome")
+        .tag("interceptor", name)
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+}
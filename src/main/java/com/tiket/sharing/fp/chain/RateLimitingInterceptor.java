@@ -0,0 +1,148 @@
+package com.tiket.sharing.fp.chain;
+
+import com.tiket.sharing.fp.chain.RequestInterceptor.SynchronousInterceptor;
+import com.tiket.sharing.fp.model.OrderRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.Value;
+import org.springframework.util.Assert;
+
+/**
+ * Limit order rate of each customer, keyed by customer's email address, rejecting request exceeding the limit with
+ * {@link RateLimitExceededException}.
+ *
+ * Each customer has token bucket implemented as generic cell rate algorithm, i.e. single {@link AtomicLong} of
+ * theoretical arrival time updated by CAS, held in {@link ConcurrentHashMap}, so no lock taken on hot path.
+ * Bucket whose theoretical arrival time passed is full, i.e. equivalent to absent bucket, so such idle buckets
+ * are periodically swept, bounding memory to customers ordering within the last period. Request without customer
+ * email can't be attributed to any customer, so passed without limiting, leaving it to request validation.
+ *
+ * @author zakyalvan
+ */
+public class RateLimitingInterceptor implements SynchronousInterceptor {
+  private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+  private final long emissionNanos;
+  private final long toleranceNanos;
+  private final long sweepNanos;
+  private final AtomicLong nextSweep;
+  private final Counter rejected;
+
+  public RateLimitingInterceptor() {
+    this(Settings.builder().build(), Metrics.globalRegistry);
+  }
+  public RateLimitingInterceptor(Settings settings, MeterRegistry meterRegistry) {
+    Assert.notNull(settings, "Rate limit settings must be provided");
+    Assert.isTrue(settings.getLimit() > 0, "Limit must be positive");
+    Assert.isTrue(settings.getBurst() > 0, "Burst must be positive");
+    Assert.isTrue(settings.getPeriod() != null && !settings.getPeriod().isNegative() && !settings.getPeriod().isZero(),
+        "Period must be positive");
+    Assert.isTrue(settings.getSweepInterval() != null && !settings.getSweepInterval().isNegative()
+        && !settings.getSweepInterval().isZero(), "Sweep interval must be positive");
+    Assert.notNull(meterRegistry, "Meter registry must be provided");
+
+    this.emissionNanos = settings.getPeriod().toNanos() / settings.getLimit();
+    this.toleranceNanos = emissionNanos * settings.getBurst();
+    this.sweepNanos = settings.getSweepInterval().toNanos();
+    this.nextSweep = new AtomicLong(System.nanoTime() + sweepNanos);
+
+    this.rejected = Counter.builder("order.ratelimit.rejected")
+        .description("Number of order request rejected by rate limit")
+        .register(meterRegistry);
+    Gauge.builder("order.ratelimit.buckets", buckets, Map::size)
+        .description("Number of customer with non-full bucket")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public OrderRequest intercept(OrderRequest request) {
+    long now = System.nanoTime();
+    sweep(now);
+
+    String customerEmail = (request.getCustomer() != null) ? request.getCustomer().getEmailAddress() : null;
+    if (customerEmail == null) {
+      return request;
+    }
+
+    AtomicLong bucket = bucket(customerEmail, now);
+    while (true) {
+      long arrival = bucket.get();
+      long next = Math.max(arrival, now) + emissionNanos;
+      long waitNanos = next - now - toleranceNanos;
+      if (waitNanos > 0) {
+        rejected.increment();
+        throw new RateLimitExceededException(request, Duration.ofNanos(waitNanos));
+      }
+      if (bucket.compareAndSet(arrival, next)) {
+        return request;
+      }
+    }
+  }
+
+  /**
+   * Bucket of given customer, looked up first, since {@link ConcurrentHashMap#computeIfAbsent(Object,
+   * java.util.function.Function)} on Java 8 locks the bin even when key already present.
+   */
+  private AtomicLong bucket(String customerEmail, long now) {
+    AtomicLong bucket = buckets.get(customerEmail);
+    return (bucket != null) ? bucket : buckets.computeIfAbsent(customerEmail, key -> new AtomicLong(now));
+  }
+
+  /**
+   * Remove full buckets, by single caller once per sweep interval. Request racing with removal of its bucket
+   * might pass without being counted, allowing at most one extra order.
+   */
+  private void sweep(long now) {
+    long sweepAt = nextSweep.get();
+    if (now - sweepAt < 0 || !nextSweep.compareAndSet(sweepAt, now + sweepNanos)) {
+      return;
+    }
+    buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+  }
+
+  @Value
+  @Getter
+  @lombok.Builder(builderClassName = "Builder")
+  public static class Settings {
+    /**
+     * Sustained number of orders allowed per period.
+     */
+    @lombok.Builder.Default
+    int limit = 10;
+
+    @lombok.Builder.Default
+    Duration period = Duration.ofMinutes(1);
+
+    /**
+     * Number of orders allowed at once, after customer idle.
+     */
+    @lombok.Builder.Default
+    int burst = 5;
+
+    @lombok.Builder.Default
+    Duration sweepInterval = Duration.ofMinutes(1);
+  }
+
+  public static class RateLimitExceededException extends RequestInterceptException {
+    private final Duration retryAfter;
+
+    RateLimitExceededException(OrderRequest request, Duration retryAfter) {
+      super(request, String.format("Order rate limit exceeded, retry after %d ms", retryAfter.toMillis()), null);
+      this.retryAfter = retryAfter;
+    }
+
+    public static boolean rateLimitError(Throwable error) {
+      return error instanceof RateLimitExceededException;
+    }
+
+    public Duration getRetryAfter() {
+      return retryAfter;
+    }
+  }
+}
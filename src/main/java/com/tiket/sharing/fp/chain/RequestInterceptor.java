@@ -1,14 +1,18 @@
 package com.tiket.sharing.fp.chain;
 
-import static reactor.core.publisher.Mono.justOrEmpty;
-
 import com.tiket.sharing.fp.chain.RequestInterceptor.InterceptorChain;
+import com.tiket.sharing.fp.chain.RequestInterceptor.SynchronousInterceptor;
+import com.tiket.sharing.fp.chain.RequestInterceptor.ValidatingInterceptor;
 import com.tiket.sharing.fp.model.OrderRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Optional;
-import lombok.extern.slf4j.Slf4j;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -41,49 +45,342 @@ public interface RequestInterceptor {
     static InterceptorChain of(List<RequestInterceptor> interceptors) {
       return new DefaultInterceptorChain(interceptors);
     }
+
+    /**
+     * Create instrumented {@link DefaultInterceptorChain}, labelling meters of each interceptor by its position.
+     *
+     * @param interceptors
+     * @param meterRegistry
+     * @return
+     * @see InterceptorMetrics
+     */
+    static InterceptorChain of(List<RequestInterceptor> interceptors, MeterRegistry meterRegistry) {
+      Map<String, RequestInterceptor> named = new LinkedHashMap<>();
+      if (interceptors != null) {
+        for (int index = 0; index < interceptors.size(); index++) {
+          named.put(String.valueOf(index), interceptors.get(index));
+        }
+      }
+      return of(named, meterRegistry);
+    }
+
+    /**
+     * Create instrumented {@link DefaultInterceptorChain} of interceptors in iteration order of given map,
+     * labelling meters of each interceptor by its name, e.g. bean name.
+     *
+     * @param interceptors
+     * @param meterRegistry
+     * @return
+     * @see InterceptorMetrics
+     */
+    static InterceptorChain of(Map<String, RequestInterceptor> interceptors, MeterRegistry meterRegistry) {
+      Assert.notNull(interceptors, "Named interceptors must be provided");
+      Assert.notNull(meterRegistry, "Meter registry must be provided");
+
+      InterceptorMetrics[] metrics = interceptors.keySet().stream()
+          .map(name -> new InterceptorMetrics(name, meterRegistry))
+          .toArray(InterceptorMetrics[]::new);
+      return new DefaultInterceptorChain(new ArrayList<>(interceptors.values()), metrics);
+    }
+  }
+
+  /**
+   * Interceptor completing immediately, without deferring to other publisher. Consecutive synchronous interceptors
+   * are evaluated by {@link DefaultInterceptorChain} in a plain loop, without any publisher in between.
+   */
+  @FunctionalInterface
+  interface SynchronousInterceptor extends RequestInterceptor {
+    /**
+     * Intercept request, throwing {@link RequestInterceptException} to reject it.
+     *
+     * @param request
+     * @return request passed to next interceptor, must not be null
+     */
+    OrderRequest intercept(OrderRequest request);
+
+    @Override
+    default Mono<OrderRequest> evaluate(OrderRequest request, InterceptorChain chain) {
+      OrderRequest intercepted;
+      try {
+        intercepted = intercept(request);
+      }
+      catch (RuntimeException e) {
+        return Mono.error(e);
+      }
+      return chain.evaluate(intercepted);
+    }
+  }
+
+  /**
+   * Interceptor only validating request, never rewriting it. Consecutive validating interceptors are evaluated by
+   * {@link DefaultInterceptorChain} concurrently, while error still selected in chain order, i.e. error of the first
+   * failed validator in chain, regardless of which validator failed first.
+   */
+  @FunctionalInterface
+  interface ValidatingInterceptor extends RequestInterceptor {
+    /**
+     * Validate request, signalling {@link RequestInterceptException} to reject it.
+     *
+     * @param request
+     * @return
+     */
+    Mono<Void> validate(OrderRequest request);
+
+    @Override
+    default Mono<OrderRequest> evaluate(OrderRequest request, InterceptorChain chain) {
+      return validate(request).then(chain.evaluate(request));
+    }
   }
 }
 
 
 /**
- * Default implementation of {@link InterceptorChain}.
+ * Default implementation of {@link InterceptorChain}, backed by array of interceptors and one precomputed chain node
+ * per position, so passing request to next interceptor never allocates chain object. Only runs of
+ * {@link SynchronousInterceptor}s are free of any other allocation, hop to asynchronous interceptor still assembles
+ * its deferred publisher and empty fallback operator per evaluation.
+ *
+ * As before, each interceptor is invoked lazily, on subscription, and interceptor completing empty is treated as if
+ * it emitted request it received. Consecutive {@link ValidatingInterceptor}s are subscribed at once, see
+ * {@link ValidationRun}.
+ *
+ * Instrumented chain records {@link InterceptorMetrics} of each interceptor, uninstrumented chain takes no
+ * measurement at all.
  */
-@Slf4j
 class DefaultInterceptorChain implements InterceptorChain {
-  private final Optional<RequestInterceptor> interceptor;
-  private final Optional<InterceptorChain> next;
+  private final RequestInterceptor[] interceptors;
+  private final boolean[] synchronous;
+  private final boolean[] validating;
+  private final InterceptorMetrics[] metrics;
+  private final Node[] nodes;
 
   DefaultInterceptorChain(List<RequestInterceptor> interceptors) {
+    this(interceptors, null);
+  }
+  DefaultInterceptorChain(List<RequestInterceptor> interceptors, InterceptorMetrics[] metrics) {
     interceptors = (interceptors != null) ? interceptors : Collections.emptyList();
+    Assert.isTrue(metrics == null || metrics.length == interceptors.size(),
+        "Metrics must be provided for each interceptor");
 
-    ListIterator<? extends RequestInterceptor> iterator = interceptors
-        .listIterator(interceptors.size());
-
-    DefaultInterceptorChain chain = new DefaultInterceptorChain(null, null);
-    while (iterator.hasPrevious()) {
-      chain = new DefaultInterceptorChain(iterator.previous(), chain);
+    this.interceptors = interceptors.toArray(new RequestInterceptor[0]);
+    this.synchronous = new boolean[this.interceptors.length];
+    this.validating = new boolean[this.interceptors.length];
+    this.metrics = metrics;
+    this.nodes = new Node[this.interceptors.length + 1];
+    for (int index = 0; index < this.interceptors.length; index++) {
+      Assert.notNull(this.interceptors[index], "Request interceptor must not be null");
+      this.synchronous[index] = this.interceptors[index] instanceof SynchronousInterceptor;
+      this.validating[index] = !synchronous[index] && this.interceptors[index] instanceof ValidatingInterceptor;
+    }
+    for (int index = 0; index < nodes.length; index++) {
+      nodes[index] = new Node(index);
     }
-
-    this.interceptor = chain.interceptor;
-    this.next = chain.next;
-  }
-  DefaultInterceptorChain(RequestInterceptor interceptor, InterceptorChain next) {
-    this.interceptor = Optional.ofNullable(interceptor);
-    this.next = Optional.ofNullable(next);
   }
 
   /**
-   * For last interceptor, we just return intercepted request object.
+   * After last interceptor, we just return intercepted request object.
    *
    * @param request
    * @return
    */
   @Override
   public Mono<OrderRequest> evaluate(OrderRequest request) {
-    return justOrEmpty(interceptor)
-        .flatMap(intercept -> justOrEmpty(next)
-            .flatMap(chain -> intercept.evaluate(request, chain))
-        )
-        .defaultIfEmpty(request);
+    return nodes[0].evaluate(request);
+  }
+
+  /**
+   * Remaining chain, starting from interceptor of given index.
+   */
+  private final class Node implements InterceptorChain {
+    private final int index;
+
+    private Node(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public Mono<OrderRequest> evaluate(OrderRequest request) {
+      if (index == interceptors.length) {
+        return Mono.just(request);
+      }
+      return Mono.defer(() -> intercept(request));
+    }
+
+    /**
+     * Evaluate remaining chain on subscription.
+     */
+    private Mono<OrderRequest> subscribed(OrderRequest request) {
+      return (index == interceptors.length) ? Mono.just(request) : intercept(request);
+    }
+
+    private Mono<OrderRequest> intercept(OrderRequest request) {
+      int position = index;
+      OrderRequest current = request;
+      try {
+        while (position < interceptors.length && synchronous[position]) {
+          current = (metrics != null)
+              ? intercepted(position, current)
+              : ((SynchronousInterceptor) interceptors[position]).intercept(current);
+          Assert.state(current != null, "Synchronous interceptor must return request");
+          position++;
+        }
+      }
+      catch (RuntimeException e) {
+        return Mono.error(e);
+      }
+
+      if (position == interceptors.length) {
+        return Mono.just(current);
+      }
+
+      int end = position;
+      while (end < interceptors.length && validating[end]) {
+        end++;
+      }
+      if (end - position > 1) {
+        return validate(position, end, current);
+      }
+      if (metrics != null) {
+        return timed(position, current);
+      }
+      return interceptors[position].evaluate(current, nodes[position + 1])
+          .defaultIfEmpty(current);
+    }
+
+    private OrderRequest intercepted(int position, OrderRequest request) {
+      long startTime = System.nanoTime();
+      try {
+        OrderRequest intercepted = ((SynchronousInterceptor) interceptors[position]).intercept(request);
+        metrics[position].terminated(startTime, false, null);
+        return intercepted;
+      }
+      catch (RuntimeException e) {
+        metrics[position].terminated(startTime, false, e);
+        throw e;
+      }
+    }
+
+    private Mono<OrderRequest> timed(int position, OrderRequest request) {
+      Hop hop = new Hop(metrics[position], nodes[position + 1]);
+      return interceptors[position].evaluate(request, hop)
+          .defaultIfEmpty(request)
+          .doOnSuccess(intercepted -> hop.terminated(null))
+          .doOnError(hop::terminated)
+          .doOnCancel(hop::cancelled);
+    }
+
+    /**
+     * Subscribe validators of given range at once, then continue with next interceptor if all passed.
+     */
+    private Mono<OrderRequest> validate(int from, int to, OrderRequest request) {
+      ValidationRun run = new ValidationRun(to - from);
+      List<Mono<Throwable>> outcomes = new ArrayList<>(to - from);
+      for (int position = from; position < to; position++) {
+        int index = position - from;
+        outcomes.add(validation(position, request)
+            .then(Mono.fromCallable(() -> run.settle(index, null)))
+            .onErrorResume(error -> Mono.justOrEmpty(run.settle(index, error))));
+      }
+      return Flux.merge(outcomes)
+          .next()
+          .flatMap(Mono::<OrderRequest>error)
+          .switchIfEmpty(nodes[to].evaluate(request));
+    }
+
+    private Mono<Void> validation(int position, OrderRequest request) {
+      Mono<Void> validation = ((ValidatingInterceptor) interceptors[position]).validate(request);
+      if (metrics == null) {
+        return validation;
+      }
+      return Mono.defer(() -> {
+        AtomicBoolean settled = new AtomicBoolean();
+        long startTime = System.nanoTime();
+        return validation
+            .doOnSuccess(nothing -> {
+              if (settled.compareAndSet(false, true)) {
+                metrics[position].terminated(startTime, false, null);
+              }
+            })
+            .doOnError(error -> {
+              if (settled.compareAndSet(false, true)) {
+                metrics[position].terminated(startTime, false, error);
+              }
+            })
+            .doOnCancel(() -> {
+              if (settled.compareAndSet(false, true)) {
+                metrics[position].cancelled(startTime, false);
+              }
+            });
+      });
+    }
+  }
+
+  /**
+   * Next chain of single evaluation of instrumented interceptor, marking when interceptor delegated downstream.
+   * Evaluation settled once, either terminated or cancelled.
+   */
+  private static final class Hop implements InterceptorChain {
+    private final InterceptorMetrics metrics;
+    private final Node next;
+    private final long startTime = System.nanoTime();
+    private final AtomicBoolean settled = new AtomicBoolean();
+    private volatile boolean delegated;
+
+    private Hop(InterceptorMetrics metrics, Node next) {
+      this.metrics = metrics;
+      this.next = next;
+    }
+
+    @Override
+    public Mono<OrderRequest> evaluate(OrderRequest request) {
+      return Mono.defer(() -> {
+        if (!delegated) {
+          delegated = true;
+          metrics.delegated(startTime);
+        }
+        return next.subscribed(request);
+      });
+    }
+
+    void terminated(Throwable error) {
+      if (settled.compareAndSet(false, true)) {
+        metrics.terminated(startTime, delegated, error);
+      }
+    }
+
+    void cancelled() {
+      if (settled.compareAndSet(false, true)) {
+        metrics.cancelled(startTime, delegated);
+      }
+    }
+  }
+
+  /**
+   * Outcomes of concurrently evaluated validators. Error is decisive once all validators before the failed one passed,
+   * so that taking first decisive error cancels validators still in progress.
+   */
+  private static final class ValidationRun {
+    private final boolean[] settled;
+    private final Throwable[] errors;
+    private int passed;
+
+    private ValidationRun(int size) {
+      this.settled = new boolean[size];
+      this.errors = new Throwable[size];
+    }
+
+    /**
+     * Record outcome of validator of given index.
+     *
+     * @return decisive error, or null if not decided yet or all passed
+     */
+    synchronized Throwable settle(int index, Throwable error) {
+      settled[index] = true;
+      errors[index] = error;
+      while (passed < settled.length && settled[passed] && errors[passed] == null) {
+        passed++;
+      }
+      return (passed < settled.length && settled[passed]) ? errors[passed] : null;
+    }
   }
 }
@@ -1,6 +1,5 @@
 package com.tiket.sharing.fp.model;
 
-import java.math.BigDecimal;
 import lombok.Getter;
 import lombok.Value;
 
@@ -11,7 +10,7 @@ import lombok.Value;
 @Getter
 @lombok.Builder(builderClassName = "Builder")
 public class BookPricing {
-  BigDecimal basePrice;
-  BigDecimal convenienceFee;
-  BigDecimal totalAmount;
+  Money basePrice;
+  Money convenienceFee;
+  Money totalAmount;
 }
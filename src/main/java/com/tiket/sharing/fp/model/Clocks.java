@@ -0,0 +1,166 @@
+package com.tiket.sharing.fp.model;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.springframework.util.Assert;
+
+/**
+ * Factories of {@link Clock} passed explicitly to time dependent models and calculations, e.g. expiry time of
+ * {@link LoyaltyEarning}. Hot paths could use {@link #ticking(Clock, Duration)} clock, batch jobs could share
+ * {@link #anchored(Clock)} clock across one run, while tests could use {@link Clock#fixed(Instant, ZoneId)} or
+ * {@link #virtual(Instant, ZoneId)} clock.
+ *
+ * @author zakyalvan
+ */
+public final class Clocks {
+  private Clocks() {
+  }
+
+  /**
+   * Freeze instant of given clock, e.g. to share single expiry anchor for all earnings calculated in one batch.
+   *
+   * @param clock
+   * @return
+   */
+  public static Clock anchored(Clock clock) {
+    Assert.notNull(clock, "Clock must be provided");
+    return Clock.fixed(clock.instant(), clock.getZone());
+  }
+
+  /**
+   * Create clock caching instant of source clock, refreshed by background daemon thread on every given resolution.
+   *
+   * @param source
+   * @param resolution
+   * @return
+   */
+  public static TickingClock ticking(Clock source, Duration resolution) {
+    Assert.notNull(source, "Source clock must be provided");
+    Assert.isTrue(resolution != null && !resolution.isNegative() && !resolution.isZero(),
+        "Resolution must be positive");
+    return new TickingClock(source, resolution);
+  }
+
+  public static VirtualClock virtual(Instant start, ZoneId zone) {
+    Assert.notNull(start, "Start instant must be provided");
+    Assert.notNull(zone, "Zone must be provided");
+    return new VirtualClock(new AtomicReference<>(start), zone);
+  }
+
+  /**
+   * Clock with cached instant, ticking periodically. Must be closed to stop its ticker thread.
+   */
+  public static final class TickingClock extends Clock implements AutoCloseable {
+    private final Clock source;
+    private final ScheduledExecutorService ticker;
+    private volatile Instant instant;
+
+    private TickingClock(Clock source, Duration resolution) {
+      this.source = source;
+      this.instant = source.instant();
+      this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "clock-ticker");
+        thread.setDaemon(true);
+        return thread;
+      });
+      ticker.scheduleAtFixedRate(() -> instant = source.instant(),
+          resolution.toNanos(), resolution.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return source.getZone();
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return new ZonedClock(this, zone);
+    }
+
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+
+    @Override
+    public void close() {
+      ticker.shutdownNow();
+    }
+  }
+
+  /**
+   * Clock only moving when explicitly advanced.
+   */
+  public static final class VirtualClock extends Clock {
+    private final AtomicReference<Instant> instant;
+    private final ZoneId zone;
+
+    private VirtualClock(AtomicReference<Instant> instant, ZoneId zone) {
+      this.instant = instant;
+      this.zone = zone;
+    }
+
+    public VirtualClock advance(Duration duration) {
+      Assert.notNull(duration, "Duration must be provided");
+      instant.updateAndGet(current -> current.plus(duration));
+      return this;
+    }
+
+    public VirtualClock set(Instant instant) {
+      Assert.notNull(instant, "Instant must be provided");
+      this.instant.set(instant);
+      return this;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return zone;
+    }
+
+    /**
+     * Clock of other zone, sharing instant with this clock.
+     */
+    @Override
+    public VirtualClock withZone(ZoneId zone) {
+      Assert.notNull(zone, "Zone must be provided");
+      return new VirtualClock(instant, zone);
+    }
+
+    @Override
+    public Instant instant() {
+      return instant.get();
+    }
+  }
+
+  private static final class ZonedClock extends Clock {
+    private final Clock source;
+    private final ZoneId zone;
+
+    private ZonedClock(Clock source, ZoneId zone) {
+      Assert.notNull(zone, "Zone must be provided");
+      this.source = source;
+      this.zone = zone;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      return new ZonedClock(source, zone);
+    }
+
+    @Override
+    public Instant instant() {
+      return source.instant();
+    }
+  }
+}
@@ -1,9 +1,11 @@
 package com.tiket.sharing.fp.model;
 
+import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import lombok.Getter;
 import lombok.Value;
+import org.springframework.util.Assert;
 
 /**
  * @author zakyalvan
@@ -15,6 +17,10 @@ public class LoyaltyEarning {
   LocalDateTime expiryTime;
 
   public static LoyaltyEarning create(Integer points, Duration validity) {
-    return new LoyaltyEarning(points, LocalDateTime.now().plus(validity));
+    return create(points, validity, Clock.systemDefaultZone());
+  }
+  public static LoyaltyEarning create(Integer points, Duration validity, Clock clock) {
+    Assert.notNull(clock, "Clock must be provided");
+    return new LoyaltyEarning(points, LocalDateTime.now(clock).plus(validity));
   }
 }
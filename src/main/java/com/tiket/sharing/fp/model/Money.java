@@ -0,0 +1,316 @@
+package com.tiket.sharing.fp.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Value;
+import org.springframework.util.Assert;
+
+/**
+ * Fixed point monetary amount, in minor units of its {@link Currency}, e.g. 10.50 IDR is 1050 minor units.
+ *
+ * Arithmetic is exact, overflow raises {@link ArithmeticException}, and every operation which might lose precision
+ * takes explicit {@link RoundingMode}.
+ *
+ * In json, amount in {@link #DEFAULT_CURRENCY} written as plain decimal number, the same as former
+ * {@link BigDecimal} prices, while amount in other currency written as object of decimal amount and currency code.
+ * Both forms, and plain decimal string, accepted on read.
+ *
+ * @author zakyalvan
+ */
+@Value
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public class Money implements Comparable<Money> {
+  public static final Currency DEFAULT_CURRENCY = Currency.getInstance("IDR");
+
+  private static final long[] POWERS_OF_TEN = {
+      1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+      10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+      1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+  };
+
+  long minorUnits;
+  Currency currency;
+
+  public static Money ofMinor(long minorUnits, Currency currency) {
+    Assert.notNull(currency, "Currency must be provided");
+    return new Money(minorUnits, currency);
+  }
+  public static Money ofMajor(long majorUnits, Currency currency) {
+    Assert.notNull(currency, "Currency must be provided");
+    return new Money(Math.multiplyExact(majorUnits, powerOfTen(fractionDigits(currency))), currency);
+  }
+  public static Money of(BigDecimal amount, Currency currency, RoundingMode rounding) {
+    Assert.notNull(amount, "Amount must be provided");
+    Assert.notNull(currency, "Currency must be provided");
+    Assert.notNull(rounding, "Rounding mode must be provided");
+    return new Money(amount.setScale(fractionDigits(currency), rounding).unscaledValue().longValueExact(), currency);
+  }
+  public static Money zero(Currency currency) {
+    return ofMinor(0, currency);
+  }
+
+  /**
+   * Parse plain decimal amount, e.g. "-10.5". Amount with more fraction digits than currency's (or in scientific
+   * notation) rounded using given rounding mode.
+   *
+   * @param amount
+   * @param currency
+   * @param rounding
+   * @return
+   */
+  public static Money parse(CharSequence amount, Currency currency, RoundingMode rounding) {
+    Assert.isTrue(amount != null && amount.length() > 0, "Amount must be provided");
+    Assert.notNull(currency, "Currency must be provided");
+
+    int digits = fractionDigits(currency);
+    int index = 0;
+    boolean negative = false;
+    if (amount.charAt(0) == '-' || amount.charAt(0) == '+') {
+      negative = amount.charAt(0) == '-';
+      index++;
+    }
+
+    long units = 0;
+    int fraction = -1;
+    boolean numeric = false;
+    for (; index < amount.length(); index++) {
+      char character = amount.charAt(index);
+      if (character == '.' && fraction < 0) {
+        fraction = 0;
+        continue;
+      }
+      if (character < '0' || character > '9' || fraction == digits) {
+        return of(new BigDecimal(amount.toString()), currency, rounding);
+      }
+      if (fraction >= 0) {
+        fraction++;
+      }
+      units = Math.addExact(Math.multiplyExact(units, 10), character - '0');
+      numeric = true;
+    }
+    if (!numeric) {
+      throw new NumberFormatException("Invalid amount " + amount);
+    }
+
+    units = Math.multiplyExact(units, powerOfTen(digits - Math.max(fraction, 0)));
+    return new Money(negative ? -units : units, currency);
+  }
+
+  public Money plus(Money other) {
+    checkCurrency(other);
+    return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+  }
+  public Money minus(Money other) {
+    checkCurrency(other);
+    return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+  }
+  public Money multiply(long multiplier) {
+    return new Money(Math.multiplyExact(minorUnits, multiplier), currency);
+  }
+
+  /**
+   * Multiply by rational number of numerator over denominator, e.g. 2/100 for 2%.
+   *
+   * @param numerator
+   * @param denominator
+   * @param rounding
+   * @return
+   */
+  public Money multiply(long numerator, long denominator, RoundingMode rounding) {
+    return new Money(roundedDivide(Math.multiplyExact(minorUnits, numerator), denominator, rounding), currency);
+  }
+  public Money negate() {
+    return new Money(Math.negateExact(minorUnits), currency);
+  }
+
+  public int signum() {
+    return Long.signum(minorUnits);
+  }
+  public int fractionDigits() {
+    return fractionDigits(currency);
+  }
+
+  /**
+   * Amount in major units, e.g. 10 of 10.50 IDR rounded down.
+   *
+   * @param rounding
+   * @return
+   */
+  public long majorUnits(RoundingMode rounding) {
+    return roundedDivide(minorUnits, powerOfTen(fractionDigits()), rounding);
+  }
+  public BigDecimal toBigDecimal() {
+    return BigDecimal.valueOf(minorUnits, fractionDigits());
+  }
+
+  @Override
+  public int compareTo(Money other) {
+    checkCurrency(other);
+    return Long.compare(minorUnits, other.minorUnits);
+  }
+
+  @Override
+  public String toString() {
+    return toBigDecimal().toPlainString() + " " + currency.getCurrencyCode();
+  }
+
+  private void checkCurrency(Money other) {
+    Assert.notNull(other, "Other money must be provided");
+    if (!currency.equals(other.currency)) {
+      throw new IllegalArgumentException("Currency mismatch, " + currency + " and " + other.currency);
+    }
+  }
+
+  public static int fractionDigits(Currency currency) {
+    return Math.max(currency.getDefaultFractionDigits(), 0);
+  }
+
+  public static long powerOfTen(int exponent) {
+    if (exponent < 0 || exponent >= POWERS_OF_TEN.length) {
+      throw new ArithmeticException("Power of ten overflow, exponent " + exponent);
+    }
+    return POWERS_OF_TEN[exponent];
+  }
+
+  /**
+   * Divide long values, rounding quotient using given rounding mode, without {@link BigDecimal}.
+   *
+   * @param dividend
+   * @param divisor
+   * @param rounding
+   * @return
+   */
+  public static long roundedDivide(long dividend, long divisor, RoundingMode rounding) {
+    Assert.notNull(rounding, "Rounding mode must be provided");
+    if (divisor == 0) {
+      throw new ArithmeticException("Division by zero");
+    }
+
+    long quotient = dividend / divisor;
+    long remainder = dividend - quotient * divisor;
+    if (remainder == 0) {
+      return quotient;
+    }
+
+    int signum = ((dividend ^ divisor) < 0) ? -1 : 1;
+    boolean increment;
+    switch (rounding) {
+      case UNNECESSARY:
+        throw new ArithmeticException("Rounding necessary");
+      case DOWN:
+        increment = false;
+        break;
+      case UP:
+        increment = true;
+        break;
+      case CEILING:
+        increment = signum > 0;
+        break;
+      case FLOOR:
+        increment = signum < 0;
+        break;
+      default:
+        long absoluteRemainder = Math.abs(remainder);
+        long comparison = absoluteRemainder - (Math.abs(divisor) - absoluteRemainder);
+        if (comparison == 0) {
+          increment = rounding == RoundingMode.HALF_UP
+              || (rounding == RoundingMode.HALF_EVEN && (quotient & 1) != 0);
+        }
+        else {
+          increment = comparison > 0;
+        }
+    }
+    return increment ? quotient + signum : quotient;
+  }
+
+  public static class Serializer extends JsonSerializer<Money> {
+    @Override
+    public void serialize(Money value, JsonGenerator generator, SerializerProvider serializers) throws IOException {
+      if (DEFAULT_CURRENCY.equals(value.currency)) {
+        generator.writeNumber(value.toBigDecimal().stripTrailingZeros().toPlainString());
+        return;
+      }
+      generator.writeStartObject();
+      generator.writeFieldName("amount");
+      generator.writeNumber(value.toBigDecimal().toPlainString());
+      generator.writeStringField("currency", value.currency.getCurrencyCode());
+      generator.writeEndObject();
+    }
+  }
+
+  public static class Deserializer extends JsonDeserializer<Money> {
+    @Override
+    public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+      return read(parser);
+    }
+
+    /**
+     * Read money of current token, either object of amount and currency, or plain number or string amount
+     * in {@link #DEFAULT_CURRENCY}. Amount rounded half even to currency's fraction digits.
+     *
+     * @param parser
+     * @return
+     * @throws IOException
+     */
+    public static Money read(JsonParser parser) throws IOException {
+      JsonToken token = parser.getCurrentToken();
+      if (token == JsonToken.VALUE_NULL) {
+        return null;
+      }
+      if (token != JsonToken.START_OBJECT) {
+        return readAmount(parser, DEFAULT_CURRENCY);
+      }
+
+      String amount = null;
+      Currency currency = DEFAULT_CURRENCY;
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        parser.nextToken();
+        switch (field) {
+          case "amount":
+            amount = parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : parser.getText();
+            break;
+          case "currency":
+            currency = Currency.getInstance(parser.getText());
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+      if (amount == null) {
+        throw new JsonParseException(parser, "Money amount must be provided");
+      }
+      return parse(amount, currency, RoundingMode.HALF_EVEN);
+    }
+
+    private static Money readAmount(JsonParser parser, Currency currency) throws IOException {
+      switch (parser.getCurrentToken()) {
+        case VALUE_NUMBER_INT:
+          return ofMajor(parser.getLongValue(), currency);
+        case VALUE_NUMBER_FLOAT:
+        case VALUE_STRING:
+          return parse(parser.getText(), currency, RoundingMode.HALF_EVEN);
+        default:
+          throw new JsonParseException(parser, "Expected money amount");
+      }
+    }
+  }
+}
@@ -0,0 +1,265 @@
+package com.tiket.sharing.fp.strategy;
+
+import static java.util.stream.Collectors.toList;
+
+import com.tiket.sharing.fp.model.BookingDetails;
+import com.tiket.sharing.fp.model.BookingParameter;
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import com.tiket.sharing.fp.strategy.SupplierBookingAdapter.BookingException;
+import com.tiket.sharing.fp.strategy.SupplierBookingAdapter.SupplierBookingDelegate;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.UnicastProcessor;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
+
+/**
+ * Micro-batching {@link SupplierBookingDelegate}, coalescing concurrent bookings to the same supplier
+ * into single batch request.
+ *
+ * Bookings collected until either batch size reached or maximum linger elapsed, then sent using
+ * {@link BatchBookingClient}. Results fanned back to each caller based on their position in batch.
+ * Window containing single booking sent using wrapped delegate, i.e. to supplier's single booking endpoint.
+ *
+ * Batches closed while all concurrent dispatches busy are queued, so that linger timer never fails for lack of
+ * demand. Number of pending bookings is bounded, booking beyond the bound rejected immediately with
+ * {@link BatchQueueFullException}. Booking cancelled before its batch dispatched is removed from the batch,
+ * while cancellation after dispatched only drops its result. Caller's subscriber context (e.g. its
+ * {@link IdempotencyKeys idempotency key}) is carried to the single booking call, and passed to batch client.
+ *
+ * @author zakyalvan
+ */
+@Slf4j
+public class BatchingBookingDelegate implements SupplierBookingDelegate, Disposable {
+  private final SupplierBookingDelegate delegate;
+  private final BatchBookingClient batchClient;
+  private final int maxPending;
+  private final AtomicInteger pending = new AtomicInteger();
+  private final FluxSink<PendingBooking> pendingBookings;
+  private final Disposable subscription;
+
+  public BatchingBookingDelegate(SupplierBookingDelegate delegate, BatchBookingClient batchClient) {
+    this(delegate, batchClient, Settings.builder().build());
+  }
+  public BatchingBookingDelegate(SupplierBookingDelegate delegate, BatchBookingClient batchClient, Settings settings) {
+    Assert.notNull(delegate, "Delegate booking adapter must be provided");
+    Assert.notNull(batchClient, "Batch booking client must be provided");
+    Assert.notNull(settings, "Batching settings must be provided");
+    Assert.isTrue(settings.getMaxSize() > 0, "Maximum batch size must be positive");
+    Assert.isTrue(settings.getMaxPending() >= settings.getMaxSize(), "Maximum pending must not be less than batch size");
+
+    this.delegate = delegate;
+    this.batchClient = batchClient;
+    this.maxPending = settings.getMaxPending();
+
+    UnicastProcessor<PendingBooking> processor = UnicastProcessor
+        .create(Queues.<PendingBooking>get(settings.getMaxPending()).get());
+    this.pendingBookings = processor.sink();
+    this.subscription = processor
+        .bufferTimeout(settings.getMaxSize(), settings.getMaxLinger())
+        .onBackpressureBuffer()
+        .flatMap(batch -> Mono.defer(() -> dispatch(batch))
+            .onErrorResume(error -> {
+              batch.forEach(pending -> pending.sink.error(error));
+              return Mono.empty();
+            }), settings.getConcurrency())
+        .subscribe(null, error -> log.error("Booking batching terminated unexpectedly", error));
+  }
+
+  @Override
+  public Boolean supports(BookingParameter parameter) {
+    return delegate.supports(parameter);
+  }
+
+  @Override
+  public Set<SupplierQualifier> suppliers() {
+    return delegate.suppliers();
+  }
+
+  @Override
+  public Mono<BookingDetails> create(BookingParameter parameter) {
+    return Mono.create(sink -> {
+      if (pending.incrementAndGet() > maxPending) {
+        pending.decrementAndGet();
+        sink.error(new BatchQueueFullException(parameter, maxPending));
+        return;
+      }
+
+      PendingBooking booking = new PendingBooking(parameter, sink);
+      sink.onDispose(pending::decrementAndGet);
+      sink.onCancel(() -> booking.cancelled = true);
+      pendingBookings.next(booking);
+    });
+  }
+
+  @Override
+  public void dispose() {
+    pendingBookings.complete();
+    subscription.dispose();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return subscription.isDisposed();
+  }
+
+  private Mono<Void> dispatch(List<PendingBooking> pendings) {
+    List<PendingBooking> batch = pendings.stream().filter(pending -> !pending.cancelled).collect(toList());
+    if (batch.isEmpty()) {
+      return Mono.empty();
+    }
+    if (batch.size() == 1) {
+      PendingBooking pending = batch.get(0);
+      return delegate.create(pending.parameter)
+          .subscriberContext(pending.context)
+          .doOnSuccess(pending.sink::success)
+          .doOnError(pending.sink::error)
+          .onErrorResume(error -> Mono.empty())
+          .then();
+    }
+
+    List<BookingParameter> parameters = batch.stream().map(pending -> pending.parameter).collect(toList());
+    List<Context> contexts = batch.stream().map(pending -> pending.context).collect(toList());
+    return batchClient.create(parameters, contexts)
+        .doOnSuccess(bookings -> complete(batch, bookings))
+        .doOnError(error -> batch.forEach(pending -> pending.sink.error(error)))
+        .onErrorResume(error -> Mono.empty())
+        .then();
+  }
+
+  private void complete(List<PendingBooking> batch, List<BookingDetails> bookings) {
+    if (bookings == null || bookings.size() != batch.size()) {
+      batch.forEach(pending -> pending.sink.error(
+          new BookingException(pending.parameter, "Batch booking result not matching batch size", null)));
+      return;
+    }
+    for (int index = 0; index < batch.size(); index++) {
+      batch.get(index).sink.success(bookings.get(index));
+    }
+  }
+
+  /**
+   * Contract for type sending batch of bookings to supplier, returning results in the same order as given parameters.
+   */
+  @FunctionalInterface
+  public interface BatchBookingClient {
+    Mono<List<BookingDetails>> create(List<BookingParameter> parameters);
+
+    /**
+     * Send batch of bookings, along with subscriber context of each booking's caller, in the same order.
+     *
+     * @param parameters
+     * @param contexts
+     * @return
+     */
+    default Mono<List<BookingDetails>> create(List<BookingParameter> parameters, List<Context> contexts) {
+      return create(parameters);
+    }
+
+    /**
+     * Create {@link BatchBookingClient} posting batch as json array to given path, with idempotency key of each
+     * booking (if any) as repeated header value, in batch order.
+     *
+     * @param webClient
+     * @param path
+     * @return
+     */
+    static BatchBookingClient webClient(WebClient webClient, String path) {
+      Assert.notNull(webClient, "Web client must be provided");
+      Assert.hasText(path, "Batch booking path must be provided");
+
+      return new BatchBookingClient() {
+        @Override
+        public Mono<List<BookingDetails>> create(List<BookingParameter> parameters) {
+          return create(parameters, Collections.emptyList());
+        }
+
+        @Override
+        public Mono<List<BookingDetails>> create(List<BookingParameter> parameters, List<Context> contexts) {
+          List<String> keys = contexts.stream()
+              .map(IdempotencyKeys::from)
+              .filter(Optional::isPresent).map(Optional::get)
+              .collect(toList());
+          return webClient.post()
+              .uri(builder -> builder.path(path)
+                  .build())
+              .contentType(MediaType.APPLICATION_JSON)
+              .accept(MediaType.APPLICATION_JSON)
+              .headers(headers -> {
+                if (!keys.isEmpty() && keys.size() == parameters.size()) {
+                  headers.addAll(IdempotencyKeys.HEADER_NAME, keys);
+                }
+              })
+              .bodyValue(parameters)
+              .retrieve().bodyToMono(new ParameterizedTypeReference<List<BookingDetails>>() {});
+        }
+      };
+    }
+  }
+
+  private static final class PendingBooking {
+    private final BookingParameter parameter;
+    private final MonoSink<BookingDetails> sink;
+    private final Context context;
+    private volatile boolean cancelled;
+
+    private PendingBooking(BookingParameter parameter, MonoSink<BookingDetails> sink) {
+      this.parameter = parameter;
+      this.sink = sink;
+      this.context = sink.currentContext();
+    }
+  }
+
+  /**
+   * Thrown when maximum number of pending bookings reached.
+   */
+  public static class BatchQueueFullException extends BookingException {
+    BatchQueueFullException(BookingParameter parameter, int maxPending) {
+      super(parameter, String.format("Booking batch queue full, %d bookings pending", maxPending), null);
+    }
+  }
+
+  @Value
+  @Getter
+  @lombok.Builder(builderClassName = "Builder")
+  public static class Settings {
+    /**
+     * Maximum number of bookings in single batch.
+     */
+    @lombok.Builder.Default
+    int maxSize = 20;
+
+    /**
+     * Maximum time first booking in batch waiting for others.
+     */
+    @lombok.Builder.Default
+    Duration maxLinger = Duration.ofMillis(5);
+
+    /**
+     * Maximum number of batch in flight.
+     */
+    @lombok.Builder.Default
+    int concurrency = 4;
+
+    /**
+     * Maximum number of bookings waiting for or being sent in batch.
+     */
+    @lombok.Builder.Default
+    int maxPending = 1024;
+  }
+}
@@ -0,0 +1,123 @@
+package com.tiket.sharing.fp.strategy;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.tiket.sharing.fp.model.BookingDetails;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDataBufferDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decode json into {@link BookingDetails}, or {@link List} of them (e.g. batch booking response), using streaming
+ * parser, filling builders directly without reflection nor intermediate tree. Empty body decoded as empty, same as
+ * Jackson decoder.
+ *
+ * @author zakyalvan
+ * @see BookingJson
+ */
+public class BookingDetailsDecoder extends AbstractDataBufferDecoder<Object> {
+  private final JsonFactory jsonFactory;
+
+  public BookingDetailsDecoder(JsonFactory jsonFactory) {
+    super(MediaType.APPLICATION_JSON);
+    Assert.notNull(jsonFactory, "Json factory must be provided");
+    this.jsonFactory = jsonFactory;
+  }
+
+  @Override
+  public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+    return (BookingDetails.class == elementType.toClass() || bookingList(elementType))
+        && super.canDecode(elementType, mimeType);
+  }
+
+  /**
+   * Decode whole content, either single object or array of objects, into booking details,
+   * or into single list when decoding list of booking details.
+   */
+  @Override
+  public Flux<Object> decode(Publisher<DataBuffer> input, ResolvableType elementType,
+      MimeType mimeType, Map<String, Object> hints) {
+    if (bookingList(elementType)) {
+      return decodeToMono(input, elementType, mimeType, hints).flux();
+    }
+    return DataBufferUtils.join(input, getMaxInMemorySize())
+        .flatMapIterable(this::readAll);
+  }
+
+  @Override
+  public Mono<Object> decodeToMono(Publisher<DataBuffer> input, ResolvableType elementType,
+      MimeType mimeType, Map<String, Object> hints) {
+    return DataBufferUtils.join(input, getMaxInMemorySize())
+        .flatMap(buffer -> Mono.justOrEmpty(decode(buffer, elementType, mimeType, hints)));
+  }
+
+  /**
+   * Decode single booking details, or list of booking details, returning null on empty content.
+   */
+  @Override
+  public Object decode(DataBuffer buffer, ResolvableType targetType,
+      MimeType mimeType, Map<String, Object> hints) throws DecodingException {
+    if (bookingList(targetType)) {
+      return (buffer.readableByteCount() > 0) ? readAll(buffer) : release(buffer);
+    }
+    try (JsonParser parser = jsonFactory.createParser(buffer.asInputStream())) {
+      return (parser.nextToken() != null) ? BookingJson.readDetails(parser) : null;
+    }
+    catch (IOException | RuntimeException ex) {
+      throw new DecodingException("Failed to decode booking details", ex);
+    }
+    finally {
+      DataBufferUtils.release(buffer);
+    }
+  }
+
+  private List<BookingDetails> readAll(DataBuffer buffer) {
+    try (JsonParser parser = jsonFactory.createParser(buffer.asInputStream())) {
+      List<BookingDetails> bookings = new ArrayList<>();
+      JsonToken token = parser.nextToken();
+      if (token == JsonToken.START_ARRAY) {
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          add(bookings, BookingJson.readDetails(parser));
+        }
+      }
+      else if (token != null) {
+        add(bookings, BookingJson.readDetails(parser));
+      }
+      return bookings;
+    }
+    catch (IOException | RuntimeException ex) {
+      throw new DecodingException("Failed to decode booking details", ex);
+    }
+    finally {
+      DataBufferUtils.release(buffer);
+    }
+  }
+
+  private static Object release(DataBuffer buffer) {
+    DataBufferUtils.release(buffer);
+    return null;
+  }
+
+  private static boolean bookingList(ResolvableType type) {
+    return List.class == type.toClass() && BookingDetails.class == type.getGeneric(0).toClass();
+  }
+
+  private static void add(List<BookingDetails> bookings, BookingDetails booking) {
+    if (booking != null) {
+      bookings.add(booking);
+    }
+  }
+}
@@ -0,0 +1,353 @@
+package com.tiket.sharing.fp.strategy;
+
+import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE;
+import static java.time.format.DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+import static java.time.format.DateTimeFormatter.ISO_LOCAL_TIME;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.tiket.sharing.fp.model.BookPricing;
+import com.tiket.sharing.fp.model.BookingDetails;
+import com.tiket.sharing.fp.model.BookingParameter;
+import com.tiket.sharing.fp.model.BookingState;
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.MembershipTier;
+import com.tiket.sharing.fp.model.Money;
+import com.tiket.sharing.fp.model.PassengerProfile;
+import com.tiket.sharing.fp.model.Schedule;
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hand written, streaming json mapping of supplier booking payloads, producing the same json as generic Jackson
+ * mapping without reflection nor intermediate tree. Field names are pre-serialized.
+ *
+ * @author zakyalvan
+ */
+final class BookingJson {
+  private static final SerializableString CUSTOMER = new SerializedString("customer");
+  private static final SerializableString PASSENGERS = new SerializedString("passengers");
+  private static final SerializableString SCHEDULE = new SerializedString("schedule");
+  private static final SerializableString TITLE = new SerializedString("title");
+  private static final SerializableString FULL_NAME = new SerializedString("fullName");
+  private static final SerializableString EMAIL_ADDRESS = new SerializedString("emailAddress");
+  private static final SerializableString PHONE_NUMBER = new SerializedString("phoneNumber");
+  private static final SerializableString MEMBER_TIER = new SerializedString("memberTier");
+  private static final SerializableString SUPPLIER = new SerializedString("supplier");
+  private static final SerializableString ORIGIN = new SerializedString("origin");
+  private static final SerializableString DESTINATION = new SerializedString("destination");
+  private static final SerializableString DEPART_DATE = new SerializedString("departDate");
+  private static final SerializableString DEPART_TIME = new SerializedString("departTime");
+  private static final SerializableString ARRIVE_DATE = new SerializedString("arriveDate");
+  private static final SerializableString ARRIVE_TIME = new SerializedString("arriveTime");
+  private static final SerializableString TRAIN_NUMBER = new SerializedString("trainNumber");
+  private static final SerializableString WAGON_CLASS = new SerializedString("wagonClass");
+  private static final SerializableString SUB_CLASS = new SerializedString("subClass");
+
+  private BookingJson() {
+  }
+
+  static void writeParameter(JsonGenerator generator, BookingParameter parameter) throws IOException {
+    generator.writeStartObject();
+    generator.writeFieldName(CUSTOMER);
+    writeCustomer(generator, parameter.getCustomer());
+    generator.writeFieldName(PASSENGERS);
+    writePassengers(generator, parameter.getPassengers());
+    generator.writeFieldName(SCHEDULE);
+    writeSchedule(generator, parameter.getSchedule());
+    generator.writeEndObject();
+  }
+
+  private static void writeCustomer(JsonGenerator generator, CustomerProfile customer) throws IOException {
+    if (customer == null) {
+      generator.writeNull();
+      return;
+    }
+    generator.writeStartObject();
+    writeString(generator, TITLE, customer.getTitle());
+    writeString(generator, FULL_NAME, customer.getFullName());
+    writeString(generator, EMAIL_ADDRESS, customer.getEmailAddress());
+    writeString(generator, PHONE_NUMBER, customer.getPhoneNumber());
+    writeString(generator, MEMBER_TIER, customer.getMemberTier() != null ? customer.getMemberTier().name() : null);
+    generator.writeEndObject();
+  }
+
+  private static void writePassengers(JsonGenerator generator, List<PassengerProfile> passengers) throws IOException {
+    if (passengers == null) {
+      generator.writeNull();
+      return;
+    }
+    generator.writeStartArray();
+    for (PassengerProfile passenger : passengers) {
+      if (passenger == null) {
+        generator.writeNull();
+        continue;
+      }
+      generator.writeStartObject();
+      writeString(generator, TITLE, passenger.getTitle());
+      writeString(generator, FULL_NAME, passenger.getFullName());
+      generator.writeEndObject();
+    }
+    generator.writeEndArray();
+  }
+
+  private static void writeSchedule(JsonGenerator generator, Schedule schedule) throws IOException {
+    if (schedule == null) {
+      generator.writeNull();
+      return;
+    }
+    generator.writeStartObject();
+    writeString(generator, SUPPLIER, schedule.getSupplier() != null ? schedule.getSupplier().name() : null);
+    writeString(generator, ORIGIN, schedule.getOrigin());
+    writeString(generator, DESTINATION, schedule.getDestination());
+    writeString(generator, DEPART_DATE, schedule.getDepartDate() != null ? ISO_LOCAL_DATE.format(schedule.getDepartDate()) : null);
+    writeString(generator, DEPART_TIME, schedule.getDepartTime() != null ? ISO_LOCAL_TIME.format(schedule.getDepartTime()) : null);
+    writeString(generator, ARRIVE_DATE, schedule.getArriveDate() != null ? ISO_LOCAL_DATE.format(schedule.getArriveDate()) : null);
+    writeString(generator, ARRIVE_TIME, schedule.getArriveTime() != null ? ISO_LOCAL_TIME.format(schedule.getArriveTime()) : null);
+    writeString(generator, TRAIN_NUMBER, schedule.getTrainNumber());
+    writeString(generator, WAGON_CLASS, schedule.getWagonClass());
+    writeString(generator, SUB_CLASS, schedule.getSubClass());
+    generator.writeEndObject();
+  }
+
+  private static void writeString(JsonGenerator generator, SerializableString name, String value) throws IOException {
+    generator.writeFieldName(name);
+    if (value == null) {
+      generator.writeNull();
+    }
+    else {
+      generator.writeString(value);
+    }
+  }
+
+  /**
+   * Read booking details, parser must be positioned on start of object (or null) token.
+   *
+   * @param parser
+   * @return
+   * @throws IOException
+   */
+  static BookingDetails readDetails(JsonParser parser) throws IOException {
+    if (startObject(parser)) {
+      return null;
+    }
+    BookingDetails.Builder builder = BookingDetails.builder();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case "supplier":
+          builder.supplier(readEnum(parser, SupplierQualifier.class));
+          break;
+        case "customer":
+          builder.customer(readCustomer(parser));
+          break;
+        case "passengers":
+          builder.passengers(readPassengers(parser));
+          break;
+        case "schedule":
+          builder.schedule(readSchedule(parser));
+          break;
+        case "pricing":
+          builder.pricing(readPricing(parser));
+          break;
+        case "state":
+          builder.state(readEnum(parser, BookingState.class));
+          break;
+        case "createdTime":
+          builder.createdTime(readDateTime(parser));
+          break;
+        case "expiryTime":
+          builder.expiryTime(readDateTime(parser));
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  private static CustomerProfile readCustomer(JsonParser parser) throws IOException {
+    if (startObject(parser)) {
+      return null;
+    }
+    CustomerProfile.Builder builder = CustomerProfile.builder();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case "title":
+          builder.title(readString(parser));
+          break;
+        case "fullName":
+          builder.fullName(readString(parser));
+          break;
+        case "emailAddress":
+          builder.emailAddress(readString(parser));
+          break;
+        case "phoneNumber":
+          builder.phoneNumber(readString(parser));
+          break;
+        case "memberTier":
+          builder.memberTier(readEnum(parser, MembershipTier.class));
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  private static List<PassengerProfile> readPassengers(JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+      throw new JsonParseException(parser, "Expected array of passengers");
+    }
+    List<PassengerProfile> passengers = new ArrayList<>();
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      passengers.add(readPassenger(parser));
+    }
+    return passengers;
+  }
+
+  private static PassengerProfile readPassenger(JsonParser parser) throws IOException {
+    if (startObject(parser)) {
+      return null;
+    }
+    PassengerProfile.Builder builder = PassengerProfile.builder();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case "title":
+          builder.title(readString(parser));
+          break;
+        case "fullName":
+          builder.fullName(readString(parser));
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  private static Schedule readSchedule(JsonParser parser) throws IOException {
+    if (startObject(parser)) {
+      return null;
+    }
+    Schedule.Builder builder = Schedule.builder();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case "supplier":
+          builder.supplier(readEnum(parser, SupplierQualifier.class));
+          break;
+        case "origin":
+          builder.origin(readString(parser));
+          break;
+        case "destination":
+          builder.destination(readString(parser));
+          break;
+        case "departDate":
+          builder.departDate(readDate(parser));
+          break;
+        case "departTime":
+          builder.departTime(readTime(parser));
+          break;
+        case "arriveDate":
+          builder.arriveDate(readDate(parser));
+          break;
+        case "arriveTime":
+          builder.arriveTime(readTime(parser));
+          break;
+        case "trainNumber":
+          builder.trainNumber(readString(parser));
+          break;
+        case "wagonClass":
+          builder.wagonClass(readString(parser));
+          break;
+        case "subClass":
+          builder.subClass(readString(parser));
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  private static BookPricing readPricing(JsonParser parser) throws IOException {
+    if (startObject(parser)) {
+      return null;
+    }
+    BookPricing.Builder builder = BookPricing.builder();
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      parser.nextToken();
+      switch (field) {
+        case "basePrice":
+          builder.basePrice(Money.Deserializer.read(parser));
+          break;
+        case "convenienceFee":
+          builder.convenienceFee(Money.Deserializer.read(parser));
+          break;
+        case "totalAmount":
+          builder.totalAmount(Money.Deserializer.read(parser));
+          break;
+        default:
+          parser.skipChildren();
+      }
+    }
+    return builder.build();
+  }
+
+  /**
+   * Check current token is start of object, returning true if it is null token instead.
+   */
+  private static boolean startObject(JsonParser parser) throws IOException {
+    if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+      return true;
+    }
+    if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "Expected start of object");
+    }
+    return false;
+  }
+
+  private static String readString(JsonParser parser) throws IOException {
+    return parser.getCurrentToken() == JsonToken.VALUE_NULL ? null : parser.getText();
+  }
+
+  private static <E extends Enum<E>> E readEnum(JsonParser parser, Class<E> type) throws IOException {
+    String value = readString(parser);
+    return value == null ? null : Enum.valueOf(type, value);
+  }
+
+  private static LocalDate readDate(JsonParser parser) throws IOException {
+    String value = readString(parser);
+    return value == null ? null : LocalDate.parse(value, ISO_LOCAL_DATE);
+  }
+
+  private static LocalTime readTime(JsonParser parser) throws IOException {
+    String value = readString(parser);
+    return value == null ? null : LocalTime.parse(value, ISO_LOCAL_TIME);
+  }
+
+  private static LocalDateTime readDateTime(JsonParser parser) throws IOException {
+    String value = readString(parser);
+    return value == null ? null : LocalDateTime.parse(value, ISO_LOCAL_DATE_TIME);
+  }
+}
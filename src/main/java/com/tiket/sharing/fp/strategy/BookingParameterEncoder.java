@@ -0,0 +1,70 @@
+package com.tiket.sharing.fp.strategy;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.tiket.sharing.fp.model.BookingParameter;
+import java.io.IOException;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+/**
+ * Encode {@link BookingParameter} as json, streamed directly into (pooled) {@link DataBuffer}.
+ *
+ * @author zakyalvan
+ * @see BookingJson
+ */
+public class BookingParameterEncoder extends AbstractEncoder<BookingParameter> {
+  private final JsonFactory jsonFactory;
+
+  public BookingParameterEncoder(JsonFactory jsonFactory) {
+    super(MediaType.APPLICATION_JSON);
+    Assert.notNull(jsonFactory, "Json factory must be provided");
+    this.jsonFactory = jsonFactory;
+  }
+
+  @Override
+  public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+    return BookingParameter.class.isAssignableFrom(elementType.toClass()) && super.canEncode(elementType, mimeType);
+  }
+
+  @Override
+  public Flux<DataBuffer> encode(Publisher<? extends BookingParameter> inputStream, DataBufferFactory bufferFactory,
+      ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+    return Flux.from(inputStream)
+        .map(parameter -> encodeValue(parameter, bufferFactory, elementType, mimeType, hints));
+  }
+
+  @Override
+  public DataBuffer encodeValue(BookingParameter parameter, DataBufferFactory bufferFactory,
+      ResolvableType valueType, MimeType mimeType, Map<String, Object> hints) {
+    DataBuffer buffer = bufferFactory.allocateBuffer();
+    boolean release = true;
+    try {
+      JsonGenerator generator = jsonFactory.createGenerator(buffer.asOutputStream(), JsonEncoding.UTF8);
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      BookingJson.writeParameter(generator, parameter);
+      generator.close();
+      release = false;
+      return buffer;
+    }
+    catch (IOException ex) {
+      throw new EncodingException("Failed to encode booking parameter", ex);
+    }
+    finally {
+      if (release) {
+        DataBufferUtils.release(buffer);
+      }
+    }
+  }
+}
@@ -0,0 +1,293 @@
+package com.tiket.sharing.fp.strategy;
+
+import com.tiket.sharing.fp.model.BookingDetails;
+import com.tiket.sharing.fp.model.BookingParameter;
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.netty.handler.timeout.ReadTimeoutException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+import lombok.Value;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Mono;
+
+/**
+ * Decorate {@link SupplierBookingAdapter}, isolating each {@link SupplierQualifier} with its own in-flight limit,
+ * so slow supplier can't exhaust resources shared with others.
+ *
+ * Limit adapted using AIMD, i.e. increased additively while supplier responding below latency threshold
+ * and decreased multiplicatively when threshold exceeded or call timed out. Limit decreased at most once per
+ * window of in-flight calls, i.e. only by call started after the last decrease, so burst of slow calls backs off
+ * once instead of compounding. Booking rejected immediately with {@link SupplierSaturatedException} when supplier's
+ * limit reached.
+ *
+ * Meters tagged with bulkhead name, which must be unique per meter registry, otherwise instances sharing the name
+ * report meters of the first registered one. Bulkhead created without explicit settings is named uniquely.
+ *
+ * @author zakyalvan
+ */
+public class BulkheadBookingAdapter implements SupplierBookingAdapter {
+  private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+  private final SupplierBookingAdapter delegate;
+  private final Map<SupplierQualifier, Bulkhead> bulkheads;
+
+  public BulkheadBookingAdapter(SupplierBookingAdapter delegate) {
+    this(delegate, Settings.builder().name("bulkhead-" + SEQUENCE.incrementAndGet()).build(), Metrics.globalRegistry);
+  }
+  public BulkheadBookingAdapter(SupplierBookingAdapter delegate, Settings settings, MeterRegistry meterRegistry) {
+    Assert.notNull(delegate, "Delegate booking adapter must be provided");
+    Assert.notNull(settings, "Bulkhead settings must be provided");
+    Assert.hasText(settings.getName(), "Bulkhead name must be provided");
+    Assert.notNull(meterRegistry, "Meter registry must be provided");
+
+    this.delegate = delegate;
+    this.bulkheads = new EnumMap<>(SupplierQualifier.class);
+    for (SupplierQualifier supplier : SupplierQualifier.values()) {
+      bulkheads.put(supplier, new Bulkhead(supplier, settings, meterRegistry));
+    }
+  }
+
+  @Override
+  public Mono<BookingDetails> create(BookingParameter parameter) {
+    return Mono.defer(() -> {
+      Bulkhead bulkhead = bulkheads.get(parameter.getSchedule().getSupplier());
+      if (bulkhead == null) {
+        return delegate.create(parameter);
+      }
+      if (!bulkhead.tryAcquire()) {
+        return SupplierSaturatedException.saturatedError(parameter, bulkhead.getLimit());
+      }
+
+      // Downstream may cancel right after result signalled, so slot released only by the first terminal signal.
+      long startTime = System.nanoTime();
+      AtomicBoolean released = new AtomicBoolean();
+      return delegate.create(parameter)
+          .doOnSuccess(booking -> {
+            if (released.compareAndSet(false, true)) {
+              bulkhead.onSuccess(startTime);
+            }
+          })
+          .doOnError(error -> {
+            if (released.compareAndSet(false, true)) {
+              bulkhead.onError(error, startTime);
+            }
+          })
+          .doOnCancel(() -> {
+            if (released.compareAndSet(false, true)) {
+              bulkhead.release();
+            }
+          });
+    });
+  }
+
+  /**
+   * Current in-flight limit of given supplier.
+   *
+   * @param supplier
+   * @return
+   */
+  public int limit(SupplierQualifier supplier) {
+    return bulkheads.get(supplier).getLimit();
+  }
+
+  /**
+   * Number of in-flight booking to given supplier.
+   *
+   * @param supplier
+   * @return
+   */
+  public int inFlight(SupplierQualifier supplier) {
+    return bulkheads.get(supplier).inFlight.get();
+  }
+
+  /**
+   * Per supplier bulkhead, holding in-flight count and adaptive limit.
+   */
+  static final class Bulkhead {
+    private final Settings settings;
+    private final long latencyThreshold;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong limitBits;
+    private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime());
+    private final Counter rejections;
+
+    Bulkhead(SupplierQualifier supplier, Settings settings, MeterRegistry meterRegistry) {
+      Assert.isTrue(settings.getMinLimit() > 0, "Minimum limit must be positive");
+      Assert.isTrue(settings.getMinLimit() <= settings.getMaxLimit(), "Minimum limit must not exceed maximum limit");
+
+      this.settings = settings;
+      this.latencyThreshold = settings.getLatencyThreshold().toNanos();
+      double initialLimit = Math.max(settings.getMinLimit(), Math.min(settings.getMaxLimit(), settings.getInitialLimit()));
+      this.limitBits = new AtomicLong(Double.doubleToRawLongBits(initialLimit));
+
+      String supplierName = supplier.name().toLowerCase();
+      Gauge.builder("booking.bulkhead.inflight", inFlight, AtomicInteger::get)
+          .description("Number of in-flight booking, i.e. bulkhead queue depth")
+          .tag("bulkhead", settings.getName())
+          .tag("supplier", supplierName)
+          .register(meterRegistry);
+      Gauge.builder("booking.bulkhead.limit", this, Bulkhead::getLimit)
+          .description("Current adaptive in-flight limit")
+          .tag("bulkhead", settings.getName())
+          .tag("supplier", supplierName)
+          .register(meterRegistry);
+      this.rejections = Counter.builder("booking.bulkhead.rejected")
+          .description("Number of booking rejected because supplier saturated")
+          .tag("bulkhead", settings.getName())
+          .tag("supplier", supplierName)
+          .register(meterRegistry);
+    }
+
+    boolean tryAcquire() {
+      int limit = getLimit();
+      for (;;) {
+        int current = inFlight.get();
+        if (current >= limit) {
+          rejections.increment();
+          return false;
+        }
+        if (inFlight.compareAndSet(current, current + 1)) {
+          return true;
+        }
+      }
+    }
+
+    void release() {
+      inFlight.decrementAndGet();
+    }
+
+    /**
+     * Adapt limit to successful call started at given time, then release its slot, before result signalled
+     * downstream, so that caller booking again on result never rejected by its own finished call.
+     */
+    void onSuccess(long startTime) {
+      if (System.nanoTime() - startTime > latencyThreshold) {
+        decrease(startTime);
+      }
+      else if (inFlight.get() * 2 >= getLimit()) {
+        // Only probe higher limit when the current one actually utilized.
+        increase();
+      }
+      release();
+    }
+
+    void onError(Throwable error, long startTime) {
+      if (System.nanoTime() - startTime > latencyThreshold || timeoutError(error)) {
+        decrease(startTime);
+      }
+      release();
+    }
+
+    int getLimit() {
+      return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    private void increase() {
+      for (;;) {
+        long bits = limitBits.get();
+        double current = Double.longBitsToDouble(bits);
+        double next = Math.min(settings.getMaxLimit(), current + 1d / current);
+        if (next == current || limitBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Decrease limit, unless call started at given time was already in-flight when limit last decreased.
+     */
+    private void decrease(long startTime) {
+      long last = lastDecrease.get();
+      if (startTime - last <= 0 || !lastDecrease.compareAndSet(last, System.nanoTime())) {
+        return;
+      }
+      for (;;) {
+        long bits = limitBits.get();
+        double current = Double.longBitsToDouble(bits);
+        double next = Math.max(settings.getMinLimit(), current * settings.getBackoffRatio());
+        if (next == current || limitBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+          return;
+        }
+      }
+    }
+
+    private static boolean timeoutError(Throwable error) {
+      for (Throwable current = error; current != null; current = current.getCause()) {
+        if (current instanceof TimeoutException || current instanceof ReadTimeoutException) {
+          return true;
+        }
+        if (current.getCause() == current) {
+          break;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Settings applied to each supplier's bulkhead.
+   */
+  @Value
+  @Getter
+  @lombok.Builder(builderClassName = "Builder")
+  public static class Settings {
+    /**
+     * Name of bulkhead, tagged to its meters.
+     */
+    @lombok.Builder.Default
+    String name = "booking";
+
+    @lombok.Builder.Default
+    int initialLimit = 20;
+
+    @lombok.Builder.Default
+    int minLimit = 1;
+
+    @lombok.Builder.Default
+    int maxLimit = 200;
+
+    /**
+     * Latency above this threshold considered as overload signal.
+     */
+    @lombok.Builder.Default
+    Duration latencyThreshold = Duration.ofSeconds(2);
+
+    /**
+     * Multiplier applied to limit on overload signal.
+     */
+    @lombok.Builder.Default
+    double backoffRatio = .9;
+  }
+
+  /**
+   * Error to be thrown when supplier's in-flight limit reached.
+   */
+  @Getter
+  public static class SupplierSaturatedException extends BookingException {
+    private final int limit;
+
+    SupplierSaturatedException(BookingParameter parameter, int limit) {
+      super(parameter, String.format("Supplier %s saturated, in-flight limit %d reached",
+          parameter.getSchedule().getSupplier(), limit), null);
+      this.limit = limit;
+    }
+
+    public static <T> Mono<T> saturatedError(BookingParameter parameter, int limit) {
+      return Mono.error(new SupplierSaturatedException(parameter, limit));
+    }
+
+    public static boolean saturatedError(Throwable error) {
+      return error instanceof SupplierSaturatedException;
+    }
+  }
+}
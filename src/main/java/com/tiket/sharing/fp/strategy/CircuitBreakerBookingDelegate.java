@@ -0,0 +1,363 @@
+package com.tiket.sharing.fp.strategy;
+
+import com.tiket.sharing.fp.model.BookingDetails;
+import com.tiket.sharing.fp.model.BookingParameter;
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import com.tiket.sharing.fp.strategy.SupplierBookingAdapter.BookingException;
+import com.tiket.sharing.fp.strategy.SupplierBookingAdapter.SupplierBookingDelegate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import lombok.Getter;
+import lombok.Value;
+import org.springframework.util.Assert;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Circuit breaker decorating any {@link SupplierBookingDelegate}.
+ *
+ * Outcome of recent calls recorded in count based sliding window. Circuit opened when failure rate or slow call rate
+ * exceeding threshold, during which booking short-circuited with {@link CircuitOpenException} without calling supplier.
+ * After waiting for configured duration, limited number of probe calls permitted (half-open), circuit closed
+ * when all of them succeed or opened again on first failure.
+ *
+ * All state transitions are done with CAS, no lock involved. Waiting in open state measured by clock of settings,
+ * while call latency always measured by {@link System#nanoTime()}.
+ *
+ * Meters tagged with circuit breaker name, which must be unique per meter registry, otherwise instances sharing the
+ * name report meters of the first registered one. Circuit breaker created without explicit settings is named uniquely.
+ *
+ * @author zakyalvan
+ */
+public class CircuitBreakerBookingDelegate implements SupplierBookingDelegate {
+  private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+  private final SupplierBookingDelegate delegate;
+  private final Settings settings;
+  private final long slowCallThreshold;
+  private final long waitInOpenState;
+  private final Clock clock;
+  private final OutcomeWindow window;
+  private final AtomicReference<State> state;
+  private final Counter rejections;
+
+  public CircuitBreakerBookingDelegate(SupplierBookingDelegate delegate) {
+    this(delegate, Settings.builder().name("circuit-breaker-" + SEQUENCE.incrementAndGet()).build(),
+        Metrics.globalRegistry);
+  }
+  public CircuitBreakerBookingDelegate(SupplierBookingDelegate delegate, Settings settings, MeterRegistry meterRegistry) {
+    Assert.notNull(delegate, "Delegate booking adapter must be provided");
+    Assert.notNull(settings, "Circuit breaker settings must be provided");
+    Assert.hasText(settings.getName(), "Circuit breaker name must be provided");
+    Assert.notNull(settings.getClock(), "Circuit breaker clock must be provided");
+    Assert.notNull(meterRegistry, "Meter registry must be provided");
+    Assert.isTrue(settings.getWindowSize() > 0, "Window size must be positive");
+    Assert.isTrue(settings.getHalfOpenPermits() > 0, "Half open permits must be positive");
+
+    this.delegate = delegate;
+    this.settings = settings;
+    this.slowCallThreshold = settings.getSlowCallThreshold().toNanos();
+    this.waitInOpenState = settings.getWaitInOpenState().toMillis();
+    this.clock = settings.getClock();
+    this.window = new OutcomeWindow(settings.getWindowSize());
+    this.state = new AtomicReference<>(State.closed());
+
+    String name = delegate.suppliers().isEmpty()
+        ? delegate.getClass().getSimpleName()
+        : delegate.suppliers().iterator().next().name().toLowerCase();
+    Gauge.builder("booking.circuit.state", state, reference -> reference.get().phase.ordinal())
+        .description("Circuit state, 0 for closed, 1 for open and 2 for half-open")
+        .tag("circuit", settings.getName())
+        .tag("delegate", name)
+        .register(meterRegistry);
+    this.rejections = Counter.builder("booking.circuit.rejected")
+        .description("Number of booking short-circuited")
+        .tag("circuit", settings.getName())
+        .tag("delegate", name)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public Boolean supports(BookingParameter parameter) {
+    return delegate.supports(parameter);
+  }
+
+  @Override
+  public Set<SupplierQualifier> suppliers() {
+    return delegate.suppliers();
+  }
+
+  @Override
+  public Mono<BookingDetails> create(BookingParameter parameter) {
+    return Mono.defer(() -> {
+      State acquired = acquire();
+      if (acquired == null) {
+        rejections.increment();
+        return CircuitOpenException.circuitOpenError(parameter);
+      }
+
+      // Outcome recorded once per call, cancel right after result must not give back consumed probe permit.
+      AtomicBoolean recorded = new AtomicBoolean();
+      long startTime = System.nanoTime();
+      return delegate.create(parameter)
+          .doOnSuccess(booking -> {
+            if (recorded.compareAndSet(false, true)) {
+              onResult(acquired, false, System.nanoTime() - startTime);
+            }
+          })
+          .doOnError(error -> {
+            if (recorded.compareAndSet(false, true)) {
+              onResult(acquired, settings.getRecordFailure().test(error), System.nanoTime() - startTime);
+            }
+          })
+          .doOnCancel(() -> {
+            if (recorded.compareAndSet(false, true)) {
+              onCancel(acquired);
+            }
+          });
+    });
+  }
+
+  public Phase getPhase() {
+    return state.get().phase;
+  }
+
+  /**
+   * Acquire permission to call delegate, returning state in which permission acquired
+   * or null if call not permitted.
+   *
+   * @return
+   */
+  private State acquire() {
+    for (;;) {
+      State current = state.get();
+      if (current.phase == Phase.CLOSED) {
+        return current;
+      }
+      if (current.phase == Phase.OPEN) {
+        if (clock.millis() - current.openedTime < waitInOpenState) {
+          return null;
+        }
+        state.compareAndSet(current, State.halfOpen(settings.getHalfOpenPermits()));
+        continue;
+      }
+
+      int permits = current.permits.get();
+      if (permits <= 0) {
+        return null;
+      }
+      if (current.permits.compareAndSet(permits, permits - 1)) {
+        return current;
+      }
+    }
+  }
+
+  private void onResult(State acquired, boolean failure, long latency) {
+    if (state.get() != acquired) {
+      // Outcome of call permitted in previous state, ignore.
+      return;
+    }
+
+    boolean slow = latency >= slowCallThreshold;
+    if (acquired.phase == Phase.CLOSED) {
+      window.record(failure, slow);
+      if (window.tripped(settings) && state.compareAndSet(acquired, State.open(clock.millis()))) {
+        window.reset();
+      }
+    }
+    else if (acquired.phase == Phase.HALF_OPEN) {
+      if (failure || slow) {
+        state.compareAndSet(acquired, State.open(clock.millis()));
+      }
+      else if (acquired.successes.incrementAndGet() >= settings.getHalfOpenPermits()) {
+        state.compareAndSet(acquired, State.closed());
+      }
+    }
+  }
+
+  private void onCancel(State acquired) {
+    if (acquired.phase == Phase.HALF_OPEN && state.get() == acquired) {
+      // Give back probe permit, cancelled call tells nothing about supplier health.
+      acquired.permits.incrementAndGet();
+    }
+  }
+
+  public enum Phase {
+    CLOSED, OPEN, HALF_OPEN
+  }
+
+  /**
+   * Immutable circuit state, replaced as a whole on each transition.
+   */
+  private static final class State {
+    private final Phase phase;
+    private final long openedTime;
+    private final AtomicInteger permits;
+    private final AtomicInteger successes;
+
+    private State(Phase phase, long openedTime, int permits) {
+      this.phase = phase;
+      this.openedTime = openedTime;
+      this.permits = new AtomicInteger(permits);
+      this.successes = new AtomicInteger();
+    }
+
+    static State closed() {
+      return new State(Phase.CLOSED, 0, 0);
+    }
+    static State open(long openedTime) {
+      return new State(Phase.OPEN, openedTime, 0);
+    }
+    static State halfOpen(int permits) {
+      return new State(Phase.HALF_OPEN, 0, permits);
+    }
+  }
+
+  /**
+   * Count based sliding window of call outcomes, backed by ring of atomic slots.
+   */
+  private static final class OutcomeWindow {
+    private static final int RECORDED = 1;
+    private static final int FAILURE = 1 << 1;
+    private static final int SLOW = 1 << 2;
+
+    private final AtomicIntegerArray outcomes;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger slowCalls = new AtomicInteger();
+
+    OutcomeWindow(int size) {
+      this.outcomes = new AtomicIntegerArray(size);
+    }
+
+    void record(boolean failure, boolean slow) {
+      int outcome = RECORDED | (failure ? FAILURE : 0) | (slow ? SLOW : 0);
+      int slot = (int) (cursor.getAndIncrement() % outcomes.length());
+      count(outcomes.getAndSet(slot, outcome), -1);
+      count(outcome, 1);
+    }
+
+    void reset() {
+      for (int slot = 0; slot < outcomes.length(); slot++) {
+        count(outcomes.getAndSet(slot, 0), -1);
+      }
+    }
+
+    boolean tripped(Settings settings) {
+      int calls = this.calls.get();
+      if (calls < settings.getMinimumCalls()) {
+        return false;
+      }
+      return failures.get() * 100f / calls >= settings.getFailureRateThreshold()
+          || slowCalls.get() * 100f / calls >= settings.getSlowCallRateThreshold();
+    }
+
+    private void count(int outcome, int delta) {
+      if ((outcome & RECORDED) == 0) {
+        return;
+      }
+      calls.addAndGet(delta);
+      if ((outcome & FAILURE) != 0) {
+        failures.addAndGet(delta);
+      }
+      if ((outcome & SLOW) != 0) {
+        slowCalls.addAndGet(delta);
+      }
+    }
+  }
+
+  @Value
+  @Getter
+  @lombok.Builder(builderClassName = "Builder")
+  public static class Settings {
+    /**
+     * Name of circuit breaker, tagged to its meters.
+     */
+    @lombok.Builder.Default
+    String name = "booking";
+
+    /**
+     * Number of recent calls kept in sliding window.
+     */
+    @lombok.Builder.Default
+    int windowSize = 50;
+
+    /**
+     * Minimum number of calls in window before failure rate evaluated.
+     */
+    @lombok.Builder.Default
+    int minimumCalls = 20;
+
+    /**
+     * Failure rate threshold in percentage.
+     */
+    @lombok.Builder.Default
+    float failureRateThreshold = 50;
+
+    /**
+     * Slow call rate threshold in percentage.
+     */
+    @lombok.Builder.Default
+    float slowCallRateThreshold = 80;
+
+    @lombok.Builder.Default
+    Duration slowCallThreshold = Duration.ofSeconds(3);
+
+    @lombok.Builder.Default
+    Duration waitInOpenState = Duration.ofSeconds(10);
+
+    /**
+     * Clock measuring wait in open state.
+     */
+    @lombok.Builder.Default
+    Clock clock = Clock.systemUTC();
+
+    /**
+     * Number of probe calls permitted on half-open state.
+     */
+    @lombok.Builder.Default
+    int halfOpenPermits = 5;
+
+    /**
+     * Determine whether error counted as failure, by default client errors are not.
+     */
+    @lombok.Builder.Default
+    Predicate<Throwable> recordFailure = Settings::supplierFailure;
+
+    static boolean supplierFailure(Throwable error) {
+      if (error instanceof WebClientResponseException) {
+        return !((WebClientResponseException) error).getStatusCode().is4xxClientError();
+      }
+      return !(error instanceof BookingException);
+    }
+  }
+
+  /**
+   * Error to be thrown when booking short-circuited.
+   */
+  public static class CircuitOpenException extends BookingException {
+    CircuitOpenException(BookingParameter parameter) {
+      super(parameter, String.format("Circuit open for supplier %s", parameter.getSchedule().getSupplier()), null);
+    }
+
+    public static <T> Mono<T> circuitOpenError(BookingParameter parameter) {
+      return Mono.error(new CircuitOpenException(parameter));
+    }
+
+    public static boolean circuitOpenError(Throwable error) {
+      return error instanceof CircuitOpenException;
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package com.tiket.sharing.fp.strategy;
+
+import com.tiket.sharing.fp.model.BookingDetails;
+import com.tiket.sharing.fp.model.BookingParameter;
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.Getter;
+import lombok.Value;
+import org.springframework.util.Assert;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.core.publisher.Signal;
+import reactor.core.publisher.SignalType;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+/**
+ * Decorate {@link SupplierBookingAdapter} with hedged requests, cutting tail latency of supplier calls.
+ *
+ * When first attempt not yet answered after hedging delay, i.e. rolling percentile of observed latency of each
+ * attempt, second attempt fired. First successful response wins, the other one cancelled. Failed attempt only fails
+ * the booking when no other attempt could still succeed, i.e. first attempt failing before hedging delay is never
+ * hedged. Both attempts carry the same
+ * {@link IdempotencyKeys idempotency key}, so this decorator must only be used for suppliers
+ * whose booking endpoint honours it.
+ *
+ * @author zakyalvan
+ */
+public class HedgingBookingAdapter implements SupplierBookingAdapter {
+  private final SupplierBookingAdapter delegate;
+  private final Map<SupplierQualifier, Hedge> hedges;
+
+  public HedgingBookingAdapter(SupplierBookingAdapter delegate) {
+    this(delegate, Settings.builder().build(), Metrics.globalRegistry);
+  }
+  public HedgingBookingAdapter(SupplierBookingAdapter delegate, Settings settings, MeterRegistry meterRegistry) {
+    Assert.notNull(delegate, "Delegate booking adapter must be provided");
+    Assert.notNull(settings, "Hedging settings must be provided");
+    Assert.notNull(meterRegistry, "Meter registry must be provided");
+    Assert.isTrue(settings.getPercentile() > 0 && settings.getPercentile() <= 1, "Percentile must be in (0, 1]");
+
+    this.delegate = delegate;
+    this.hedges = new EnumMap<>(SupplierQualifier.class);
+    for (SupplierQualifier supplier : settings.getSuppliers()) {
+      hedges.put(supplier, new Hedge(supplier, settings, meterRegistry));
+    }
+  }
+
+  @Override
+  public Mono<BookingDetails> create(BookingParameter parameter) {
+    return Mono
+        .defer(() -> {
+          Hedge hedge = hedges.get(parameter.getSchedule().getSupplier());
+          if (hedge == null) {
+            return delegate.create(parameter);
+          }
+
+          MonoProcessor<Void> primaryFailed = MonoProcessor.create();
+          Mono<Tuple2<BookingDetails, Boolean>> primary = attempt(hedge, parameter, Boolean.FALSE)
+              .doOnError(error -> primaryFailed.onComplete());
+          Mono<Tuple2<BookingDetails, Boolean>> secondary = Mono.delay(hedge.getDelay())
+              .takeUntilOther(primaryFailed)
+              .flatMap(tick -> {
+                hedge.fired.increment();
+                return attempt(hedge, parameter, Boolean.TRUE);
+              });
+
+          AtomicReference<Throwable> failure = new AtomicReference<>();
+          return Flux.merge(primary.materialize(), secondary.materialize())
+              .filter(signal -> {
+                if (signal.isOnError()) {
+                  failure.compareAndSet(null, signal.getThrowable());
+                }
+                return signal.isOnNext();
+              })
+              .next()
+              .map(Signal::get)
+              .switchIfEmpty(Mono.defer(() -> (failure.get() != null) ? Mono.error(failure.get()) : Mono.empty()))
+              .doOnNext(result -> {
+                if (result.getT2()) {
+                  hedge.won.increment();
+                }
+              })
+              .map(Tuple2::getT1);
+        })
+        .subscriberContext(IdempotencyKeys.ensure(parameter));
+  }
+
+  /**
+   * Single attempt, recording its own latency when answered, or time elapsed so far when cancelled after losing,
+   * i.e. lower bound of its latency, so that slow attempts are not left out of latency samples. Recorded once on
+   * termination, winner cancelled by downstream after its result not being recorded again.
+   */
+  private Mono<Tuple2<BookingDetails, Boolean>> attempt(Hedge hedge, BookingParameter parameter, Boolean hedged) {
+    return Mono.defer(() -> {
+      long startTime = System.nanoTime();
+      return delegate.create(parameter)
+          .doFinally(signal -> {
+            if (signal != SignalType.ON_ERROR) {
+              hedge.record(System.nanoTime() - startTime);
+            }
+          })
+          .map(booking -> Tuples.of(booking, hedged));
+    });
+  }
+
+  /**
+   * Current hedging delay of given supplier.
+   *
+   * @param supplier
+   * @return
+   */
+  public Duration delay(SupplierQualifier supplier) {
+    Hedge hedge = hedges.get(supplier);
+    return (hedge != null) ? hedge.getDelay() : Duration.ZERO;
+  }
+
+  /**
+   * Per supplier latency samples and hedging counters.
+   */
+  static final class Hedge {
+    private final Settings settings;
+    private final AtomicLongArray samples;
+    private final AtomicLong recorded = new AtomicLong();
+    private volatile Duration delay;
+
+    private final Counter fired;
+    private final Counter won;
+
+    Hedge(SupplierQualifier supplier, Settings settings, MeterRegistry meterRegistry) {
+      this.settings = settings;
+      this.samples = new AtomicLongArray(settings.getSampleSize());
+      this.delay = settings.getInitialDelay();
+
+      String supplierName = supplier.name().toLowerCase();
+      this.fired = Counter.builder("booking.hedge.fired")
+          .description("Number of hedged request fired")
+          .tag("supplier", supplierName)
+          .register(meterRegistry);
+      this.won = Counter.builder("booking.hedge.won")
+          .description("Number of hedged request answered before the original one")
+          .tag("supplier", supplierName)
+          .register(meterRegistry);
+      Gauge.builder("booking.hedge.delay", this, hedge -> hedge.getDelay().toNanos())
+          .description("Current hedging delay")
+          .tag("supplier", supplierName)
+          .baseUnit(TimeUnit.NANOSECONDS.name().toLowerCase())
+          .register(meterRegistry);
+    }
+
+    Duration getDelay() {
+      return delay;
+    }
+
+    void record(long latency) {
+      long count = recorded.getAndIncrement();
+      samples.set((int) (count % samples.length()), latency);
+      if ((count + 1) % settings.getRecomputeInterval() == 0) {
+        recompute((int) Math.min(count + 1, samples.length()));
+      }
+    }
+
+    private void recompute(int size) {
+      long[] snapshot = new long[size];
+      for (int index = 0; index < size; index++) {
+        snapshot[index] = samples.get(index);
+      }
+      Arrays.sort(snapshot);
+
+      int rank = Math.max(0, (int) Math.ceil(settings.getPercentile() * size) - 1);
+      long nanos = Math.max(settings.getMinDelay().toNanos(),
+          Math.min(settings.getMaxDelay().toNanos(), snapshot[rank]));
+      this.delay = Duration.ofNanos(nanos);
+    }
+  }
+
+  @Value
+  @Getter
+  @lombok.Builder(builderClassName = "Builder")
+  public static class Settings {
+    /**
+     * Suppliers to be hedged, i.e. those with idempotent booking endpoint.
+     */
+    @lombok.Builder.Default
+    Set<SupplierQualifier> suppliers = EnumSet.allOf(SupplierQualifier.class);
+
+    /**
+     * Latency percentile used as hedging delay.
+     */
+    @lombok.Builder.Default
+    double percentile = .95;
+
+    /**
+     * Hedging delay used before enough latency samples collected.
+     */
+    @lombok.Builder.Default
+    Duration initialDelay = Duration.ofSeconds(1);
+
+    @lombok.Builder.Default
+    Duration minDelay = Duration.ofMillis(50);
+
+    @lombok.Builder.Default
+    Duration maxDelay = Duration.ofSeconds(5);
+
+    /**
+     * Number of latest latency samples kept for each supplier.
+     */
+    @lombok.Builder.Default
+    int sampleSize = 512;
+
+    /**
+     * Number of samples recorded between delay recomputation.
+     */
+    @lombok.Builder.Default
+    int recomputeInterval = 64;
+  }
+}
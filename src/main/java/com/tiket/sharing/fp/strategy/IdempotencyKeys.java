@@ -0,0 +1,61 @@
+package com.tiket.sharing.fp.strategy;
+
+import com.tiket.sharing.fp.model.BookingParameter;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.Assert;
+import reactor.util.context.Context;
+
+/**
+ * Idempotency key carried in subscriber {@link Context}, so that every attempt of the same logical booking
+ * (i.e. retries and hedged requests) sent to supplier with identical key.
+ *
+ * @author zakyalvan
+ */
+public final class IdempotencyKeys {
+  public static final String HEADER_NAME = "Idempotency-Key";
+
+  private static final String CONTEXT_KEY = IdempotencyKeys.class.getName();
+
+  private IdempotencyKeys() {
+  }
+
+  /**
+   * Put new idempotency key of given booking parameter into context, unless one of the same parameter already exists,
+   * i.e. key of other booking made under the same context is never reused.
+   *
+   * @param parameter
+   * @return
+   */
+  public static Function<Context, Context> ensure(BookingParameter parameter) {
+    Assert.notNull(parameter, "Booking parameter must be provided");
+    return context -> context.<ScopedKey>getOrEmpty(CONTEXT_KEY)
+        .filter(scoped -> scoped.getParameter().equals(parameter))
+        .map(scoped -> context)
+        .orElseGet(() -> context.put(CONTEXT_KEY, new ScopedKey(parameter, UUID.randomUUID().toString())));
+  }
+
+  public static Optional<String> from(Context context) {
+    return context.<ScopedKey>getOrEmpty(CONTEXT_KEY).map(ScopedKey::getKey);
+  }
+
+  /**
+   * Set idempotency header from given context, if any.
+   *
+   * @param context
+   * @return
+   */
+  public static Consumer<HttpHeaders> header(Context context) {
+    return headers -> from(context).ifPresent(key -> headers.set(HEADER_NAME, key));
+  }
+
+  @Value
+  private static class ScopedKey {
+    BookingParameter parameter;
+    String key;
+  }
+}
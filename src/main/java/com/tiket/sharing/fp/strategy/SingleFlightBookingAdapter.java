@@ -0,0 +1,140 @@
+package com.tiket.sharing.fp.strategy;
+
+import com.tiket.sharing.fp.model.BookingDetails;
+import com.tiket.sharing.fp.model.BookingParameter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.util.Assert;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.util.context.Context;
+
+/**
+ * Decorate {@link SupplierBookingAdapter}, collapsing concurrent identical bookings into single supplier call.
+ *
+ * Bookings considered identical when their {@link BookingParameter} equal, i.e. same customer, passengers and schedule.
+ * Concurrent callers share the same supplier call, which removed before its result signalled, so this is not
+ * a response cache, later bookings always reach supplier. Supplier call cancelled once every caller sharing it
+ * cancelled, and made with subscriber context of the caller starting it.
+ *
+ * @author zakyalvan
+ */
+public class SingleFlightBookingAdapter implements SupplierBookingAdapter {
+  private final SupplierBookingAdapter delegate;
+  private final Map<BookingParameter, Flight> inFlight = new ConcurrentHashMap<>();
+  private final Counter collapsed;
+
+  public SingleFlightBookingAdapter(SupplierBookingAdapter delegate) {
+    this(delegate, Metrics.globalRegistry);
+  }
+  public SingleFlightBookingAdapter(SupplierBookingAdapter delegate, MeterRegistry meterRegistry) {
+    Assert.notNull(delegate, "Delegate booking adapter must be provided");
+    Assert.notNull(meterRegistry, "Meter registry must be provided");
+
+    this.delegate = delegate;
+    this.collapsed = Counter.builder("booking.singleflight.collapsed")
+        .description("Number of booking joined identical in-flight booking")
+        .register(meterRegistry);
+    Gauge.builder("booking.singleflight.inflight", inFlight, Map::size)
+        .description("Number of distinct in-flight booking")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public Mono<BookingDetails> create(BookingParameter parameter) {
+    return Mono.subscriberContext().flatMap(context -> {
+      for (;;) {
+        Flight flight = inFlight.get(parameter);
+        if (flight != null) {
+          if (flight.join()) {
+            collapsed.increment();
+            return flight.result();
+          }
+          inFlight.remove(parameter, flight);
+          continue;
+        }
+
+        Flight created = new Flight(parameter);
+        created.join();
+        if (inFlight.putIfAbsent(parameter, created) == null) {
+          created.start(context);
+          return created.result();
+        }
+      }
+    });
+  }
+
+  /**
+   * Single supplier call shared by its joined callers. Closed, i.e. no longer joinable, and removed before its
+   * result signalled, or once every joined caller cancelled, which also cancels supplier call.
+   */
+  private final class Flight {
+    private final BookingParameter parameter;
+    private final MonoProcessor<BookingDetails> result = MonoProcessor.create();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Disposable.Swap upstream = Disposables.swap();
+
+    private Flight(BookingParameter parameter) {
+      this.parameter = parameter;
+    }
+
+    boolean join() {
+      for (;;) {
+        int current = subscribers.get();
+        if (current < 0) {
+          return false;
+        }
+        if (subscribers.compareAndSet(current, current + 1)) {
+          return true;
+        }
+      }
+    }
+
+    void start(Context context) {
+      upstream.update(delegate.create(parameter)
+          .subscriberContext(context)
+          .subscribe(booking -> {
+            close();
+            result.onNext(booking);
+          }, error -> {
+            close();
+            result.onError(error);
+          }, () -> {
+            close();
+            result.onComplete();
+          }));
+    }
+
+    Mono<BookingDetails> result() {
+      return result.doOnCancel(this::leave);
+    }
+
+    private void leave() {
+      for (;;) {
+        int current = subscribers.get();
+        if (current <= 0) {
+          return;
+        }
+        if (subscribers.compareAndSet(current, (current == 1) ? -1 : current - 1)) {
+          if (current == 1) {
+            inFlight.remove(parameter, this);
+            upstream.dispose();
+          }
+          return;
+        }
+      }
+    }
+
+    private void close() {
+      subscribers.set(-1);
+      inFlight.remove(parameter, this);
+    }
+  }
+}
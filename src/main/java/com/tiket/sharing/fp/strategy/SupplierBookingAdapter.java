@@ -5,12 +5,21 @@ import static java.util.stream.Collectors.toList;
 import com.tiket.sharing.fp.model.BookingDetails;
 import com.tiket.sharing.fp.model.BookingParameter;
 import com.tiket.sharing.fp.model.SupplierQualifier;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import lombok.Getter;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -50,24 +59,66 @@ public interface SupplierBookingAdapter {
      * @return
      */
     Boolean supports(@NotNull @Valid BookingParameter parameter);
+
+    /**
+     * Suppliers handled by this delegate, used to build routing index of {@link DelegatingBookingAdapter}.
+     * Delegate returning empty set only selected by evaluating {@link #supports(BookingParameter)}.
+     *
+     * @return
+     */
+    default Set<SupplierQualifier> suppliers() {
+      return Collections.emptySet();
+    }
   }
 
+  /**
+   * Route booking to delegate registered for schedule's supplier. Routing index is built once on construction,
+   * so selecting delegate only cost single array lookup. Delegates not declaring their suppliers
+   * are evaluated in registration order as fallback.
+   */
   @Validated
   class DelegatingBookingAdapter implements SupplierBookingAdapter  {
-    private final List<SupplierBookingDelegate> delegates;
+    private final Map<SupplierQualifier, SupplierBookingDelegate> routes;
+    private final SupplierBookingDelegate[] fallbacks;
 
     public DelegatingBookingAdapter(List<SupplierBookingDelegate> delegates) {
-      this.delegates = delegates;
+      delegates = (delegates != null) ? delegates : Collections.emptyList();
+
+      Map<SupplierQualifier, SupplierBookingDelegate> routes = new EnumMap<>(SupplierQualifier.class);
+      List<SupplierBookingDelegate> fallbacks = new ArrayList<>();
+      for (SupplierBookingDelegate delegate : delegates) {
+        Set<SupplierQualifier> suppliers = delegate.suppliers();
+        if (suppliers.isEmpty()) {
+          fallbacks.add(delegate);
+        }
+        for (SupplierQualifier supplier : suppliers) {
+          routes.putIfAbsent(supplier, delegate);
+        }
+      }
+
+      this.routes = routes;
+      this.fallbacks = fallbacks.toArray(new SupplierBookingDelegate[0]);
     }
 
     @Override
     public Mono<BookingDetails> create(BookingParameter parameter) {
-      return Mono
-          .justOrEmpty(delegates.stream()
-              .filter(delegate -> delegate.supports(parameter))
-              .findFirst())
-          .switchIfEmpty(BookingException.noAdapterError(parameter))
-          .flatMap(delegate -> delegate.create(parameter));
+      SupplierBookingDelegate delegate = routes.get(parameter.getSchedule().getSupplier());
+      if (delegate == null) {
+        delegate = fallback(parameter);
+      }
+      if (delegate == null) {
+        return BookingException.noAdapterError(parameter);
+      }
+      return delegate.create(parameter);
+    }
+
+    private SupplierBookingDelegate fallback(BookingParameter parameter) {
+      for (SupplierBookingDelegate delegate : fallbacks) {
+        if (Boolean.TRUE.equals(delegate.supports(parameter))) {
+          return delegate;
+        }
+      }
+      return null;
     }
   }
 
@@ -87,14 +138,21 @@ public interface SupplierBookingAdapter {
       return SupplierQualifier.RAILINK.equals(parameter.getSchedule().getSupplier());
     }
 
+    @Override
+    public Set<SupplierQualifier> suppliers() {
+      return EnumSet.of(SupplierQualifier.RAILINK);
+    }
+
     @Override
     public Mono<BookingDetails> create(BookingParameter parameter) {
-      return webClient.post()
-          .uri(builder -> builder.path("/railink/bookings")
-              .build())
-          .accept(MediaType.APPLICATION_JSON)
-          .bodyValue(parameter)
-          .retrieve().bodyToMono(BookingDetails.class)
+      return Mono.subscriberContext()
+          .flatMap(context -> webClient.post()
+              .uri(builder -> builder.path("/railink/bookings")
+                  .build())
+              .accept(MediaType.APPLICATION_JSON)
+              .headers(IdempotencyKeys.header(context))
+              .bodyValue(parameter)
+              .retrieve().bodyToMono(BookingDetails.class))
           .retryWhen(Retry.backoff(2, Duration.ofMillis(100))
               .maxBackoff(Duration.ofMillis(1000)).jitter(.1)
               .onRetryExhaustedThrow((spec, signal) -> signal.failure())
@@ -118,14 +176,21 @@ public interface SupplierBookingAdapter {
       return SupplierQualifier.KAI.equals(parameter.getSchedule().getSupplier());
     }
 
+    @Override
+    public Set<SupplierQualifier> suppliers() {
+      return EnumSet.of(SupplierQualifier.KAI);
+    }
+
     @Override
     public Mono<BookingDetails> create(BookingParameter parameter) {
-      return webClient.post()
-          .uri(builder -> builder.path("/kai/bookings")
-              .build())
-          .accept(MediaType.APPLICATION_JSON)
-          .bodyValue(parameter)
-          .retrieve().bodyToMono(BookingDetails.class)
+      return Mono.subscriberContext()
+          .flatMap(context -> webClient.post()
+              .uri(builder -> builder.path("/kai/bookings")
+                  .build())
+              .accept(MediaType.APPLICATION_JSON)
+              .headers(IdempotencyKeys.header(context))
+              .bodyValue(parameter)
+              .retrieve().bodyToMono(BookingDetails.class))
           .retryWhen(Retry.backoff(3, Duration.ofMillis(200))
               .maxBackoff(Duration.ofSeconds(1)).jitter(.1)
               .onRetryExhaustedThrow((spec, signal) -> signal.failure())
@@ -137,23 +202,38 @@ public interface SupplierBookingAdapter {
    * Configuration for testing purpose.
    */
   @Configuration(proxyBeanMethods = false)
+  @EnableConfigurationProperties(SupplierClientProperties.class)
   class BookingConfiguration {
     @Bean
     @Primary
-    SupplierBookingAdapter bookingAdapter(ObjectProvider<SupplierBookingDelegate> delegateProvider) {
-      return new DelegatingBookingAdapter(delegateProvider.stream().collect(toList()));
+    SupplierBookingAdapter bookingAdapter(ObjectProvider<SupplierBookingDelegate> delegateProvider,
+        ObjectProvider<MeterRegistry> meterRegistry) {
+      MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+      SupplierBookingAdapter delegatingAdapter = new DelegatingBookingAdapter(delegateProvider.stream().collect(toList()));
+      return new SingleFlightBookingAdapter(
+          new BulkheadBookingAdapter(delegatingAdapter, BulkheadBookingAdapter.Settings.builder().build(), registry),
+          registry);
+    }
+
+    @Bean
+    SupplierClientFactory supplierClients(WebClient.Builder webClients, SupplierClientProperties properties) {
+      return new SupplierClientFactory(webClients, properties);
     }
 
     @Bean
-    SupplierBookingDelegate railinkDelegate(WebClient.Builder webClients) {
-      WebClient webClient = webClients.clone().baseUrl("http://localhost:9876").build();
-      return new RailinkBookingDelegate(webClient);
+    SupplierBookingDelegate railinkDelegate(SupplierClientFactory supplierClients, ObjectProvider<MeterRegistry> meterRegistry) {
+      WebClient webClient = supplierClients.create(SupplierQualifier.RAILINK, "http://localhost:9876");
+      return new CircuitBreakerBookingDelegate(new RailinkBookingDelegate(webClient),
+          CircuitBreakerBookingDelegate.Settings.builder().name("railink").build(),
+          meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
     }
 
     @Bean
-    SupplierBookingAdapter trainBookingDelegate(WebClient.Builder webClients) {
-      WebClient webClient = webClients.clone().baseUrl("http://localhost:6789").build();
-      return new TrainBookingDelegate(webClient);
+    SupplierBookingDelegate trainBookingDelegate(SupplierClientFactory supplierClients, ObjectProvider<MeterRegistry> meterRegistry) {
+      WebClient webClient = supplierClients.create(SupplierQualifier.KAI, "http://localhost:6789");
+      return new CircuitBreakerBookingDelegate(new TrainBookingDelegate(webClient),
+          CircuitBreakerBookingDelegate.Settings.builder().name("kai").build(),
+          meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
     }
   }
 
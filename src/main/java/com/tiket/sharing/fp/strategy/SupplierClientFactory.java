@@ -0,0 +1,98 @@
+package com.tiket.sharing.fp.strategy;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import com.tiket.sharing.fp.strategy.SupplierClientProperties.Client;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.WriteTimeoutHandler;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Create {@link WebClient} for each supplier, backed by dedicated named {@link ConnectionProvider}
+ * so that one supplier can't starve connection pool of others. Booking payloads are (de)serialized
+ * using dedicated {@link BookingParameterEncoder} and {@link BookingDetailsDecoder}.
+ *
+ * @author zakyalvan
+ */
+public class SupplierClientFactory implements DisposableBean {
+  private final WebClient.Builder webClients;
+  private final SupplierClientProperties properties;
+  private final Map<SupplierQualifier, ConnectionProvider> connectionProviders;
+  private final JsonFactory jsonFactory = new JsonFactory();
+
+  public SupplierClientFactory(WebClient.Builder webClients, SupplierClientProperties properties) {
+    Assert.notNull(webClients, "Web client builder must be provided");
+    Assert.notNull(properties, "Supplier client properties must be provided");
+
+    this.webClients = webClients;
+    this.properties = properties;
+    this.connectionProviders = new EnumMap<>(SupplierQualifier.class);
+  }
+
+  /**
+   * Create client for given supplier.
+   *
+   * @param supplier
+   * @param defaultBaseUrl used when base url of supplier not configured
+   * @return
+   */
+  public synchronized WebClient create(SupplierQualifier supplier, String defaultBaseUrl) {
+    Client client = properties.client(supplier);
+    ConnectionProvider connectionProvider = connectionProviders
+        .computeIfAbsent(supplier, key -> connectionProvider(key, client));
+
+    HttpClient httpClient = HttpClient.create(connectionProvider)
+        .protocol(client.getProtocol())
+        .tcpConfiguration(tcpClient -> tcpClient
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) client.getConnectTimeout().toMillis()))
+        .doOnRequest((request, connection) -> connection
+            .addHandlerLast(new ReadTimeoutHandler(client.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS))
+            .addHandlerLast(new WriteTimeoutHandler(client.getWriteTimeout().toMillis(), TimeUnit.MILLISECONDS)));
+
+    return webClients.clone()
+        .baseUrl(StringUtils.hasText(client.getBaseUrl()) ? client.getBaseUrl() : defaultBaseUrl)
+        .clientConnector(new ReactorClientHttpConnector(httpClient))
+        .codecs(configurer -> {
+          configurer.customCodecs().register(new BookingParameterEncoder(jsonFactory));
+          configurer.customCodecs().register(new BookingDetailsDecoder(jsonFactory));
+        })
+        .build();
+  }
+
+  /**
+   * Connection pool used by clients of given supplier, null when no client created yet.
+   *
+   * @param supplier
+   * @return
+   */
+  synchronized ConnectionProvider connectionProvider(SupplierQualifier supplier) {
+    return connectionProviders.get(supplier);
+  }
+
+  @Override
+  public synchronized void destroy() {
+    connectionProviders.values().forEach(ConnectionProvider::dispose);
+    connectionProviders.clear();
+  }
+
+  private static ConnectionProvider connectionProvider(SupplierQualifier supplier, Client client) {
+    return ConnectionProvider.builder("booking-" + supplier.name().toLowerCase())
+        .maxConnections(client.getMaxConnections())
+        .pendingAcquireMaxCount(client.getPendingAcquireMaxCount())
+        .pendingAcquireTimeout(client.getPendingAcquireTimeout())
+        .maxIdleTime(client.getMaxIdleTime())
+        .maxLifeTime(client.getMaxLifeTime())
+        .metrics(client.isMetrics())
+        .build();
+  }
+}
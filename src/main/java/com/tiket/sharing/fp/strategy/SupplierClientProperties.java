@@ -0,0 +1,101 @@
+package com.tiket.sharing.fp.strategy;
+
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.validation.Valid;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+import reactor.netty.http.HttpProtocol;
+
+/**
+ * Http client settings of each supplier, e.g.
+ *
+ * <pre>
+ * booking.clients.suppliers.kai.base-url=https://kai.example.com
+ * booking.clients.suppliers.kai.max-connections=100
+ * booking.clients.suppliers.kai.read-timeout=3s
+ * </pre>
+ *
+ * Supplier without explicit settings use default values of {@link Client}.
+ *
+ * @author zakyalvan
+ */
+@Getter @Setter
+@Validated
+@ConfigurationProperties(prefix = "booking.clients")
+public class SupplierClientProperties {
+  private Map<SupplierQualifier, @Valid Client> suppliers = new EnumMap<>(SupplierQualifier.class);
+
+  public Client client(SupplierQualifier supplier) {
+    return suppliers.getOrDefault(supplier, new Client());
+  }
+
+  @Getter @Setter
+  public static class Client {
+    /**
+     * Supplier base url, fallback to default url of each supplier when not provided.
+     */
+    private String baseUrl;
+
+    /**
+     * Maximum number of connections in supplier's pool.
+     */
+    @Min(1)
+    private int maxConnections = 50;
+
+    /**
+     * Maximum number of requests waiting for connection, -1 for unbounded.
+     */
+    @Min(-1)
+    private int pendingAcquireMaxCount = 100;
+
+    @NotNull
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Idle connection evicted from pool after this duration.
+     */
+    @NotNull
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+
+    /**
+     * Connection evicted from pool after this duration, regardless idle or not.
+     */
+    @NotNull
+    private Duration maxLifeTime = Duration.ofMinutes(5);
+
+    /**
+     * Http protocol to supplier. {@link HttpProtocol#H2C} talks cleartext HTTP/2 with prior knowledge, so supplier must
+     * accept it without upgrade. {@link HttpProtocol#H2} requires TLS with ALPN, which is not configured
+     * by {@link SupplierClientFactory}, hence rejected.
+     */
+    @NotNull
+    private HttpProtocol protocol = HttpProtocol.HTTP11;
+
+    @NotNull
+    private Duration connectTimeout = Duration.ofSeconds(1);
+
+    @NotNull
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    @NotNull
+    private Duration writeTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Whether to publish connection pool metrics.
+     */
+    private boolean metrics = true;
+
+    @AssertTrue(message = "H2 protocol requires TLS, use H2C or HTTP11 instead")
+    public boolean isProtocolSupported() {
+      return protocol != HttpProtocol.H2;
+    }
+  }
+}
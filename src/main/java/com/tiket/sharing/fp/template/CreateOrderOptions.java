@@ -1,5 +1,6 @@
 package com.tiket.sharing.fp.template;
 
+import com.tiket.sharing.fp.model.BookingDetails;
 import com.tiket.sharing.fp.model.OrderDetails;
 import com.tiket.sharing.fp.model.OrderRequest;
 import java.util.function.Function;
@@ -22,6 +23,14 @@ public class CreateOrderOptions {
   private Function<OrderDetails, Mono<Void>> orderSynchronizer;
   private UnaryOperator<Mono<OrderDetails>> orderPersister;
 
+  /**
+   * Whether supplier bookings started together with {@link #requestPreprocessor()}, instead of after it completed.
+   * Speculative bookings are compensated using {@link #bookingCompensator()} when preprocessor rejected request
+   * or rewrote it in a way affecting bookings, including those still in progress once they completed.
+   */
+  private boolean speculativeBooking;
+  private Function<BookingDetails, Mono<Void>> bookingCompensator;
+
   public static CreateOrderOptions empty() {
     return new CreateOrderOptions();
   }
@@ -1,67 +1,197 @@
 package com.tiket.sharing.fp.template;
 
-import static reactor.core.publisher.Flux.fromStream;
-
 import com.tiket.sharing.fp.model.BookingDetails;
 import com.tiket.sharing.fp.model.BookingParameter;
+import com.tiket.sharing.fp.model.JourneyDirection;
 import com.tiket.sharing.fp.model.OrderDetails;
 import com.tiket.sharing.fp.model.OrderRequest;
-import com.tiket.sharing.fp.model.PassengerProfile;
-import com.tiket.sharing.fp.model.Schedule;
 import com.tiket.sharing.fp.strategy.SupplierBookingAdapter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.UnaryOperator;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.util.Assert;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
 
 /**
  * Template class responsible for creating order.
  *
+ * With {@link CreateOrderOptions#speculativeBooking()}, supplier bookings run concurrently with request preprocessor,
+ * so order latency is the slower of both rather than their sum. Speculation wins when preprocessor passed request
+ * without changing customer, passengers or schedules, otherwise it is wasted, counted as order.speculation
+ * with outcome 'win' or 'waste'. Speculative booking failure is neither, it fails the order just like
+ * non-speculative booking would.
+ *
  * @author zakyalvan
  */
+@Slf4j
 abstract class CreateOrderSupport {
+  private static final Consumer<BookingDetails> IGNORE_BOOKED = booking -> {};
+
   private final SupplierBookingAdapter bookingAdapter;
+  private final Counter speculationWins;
+  private final Counter speculationWastes;
 
   private Function<OrderRequest, Mono<OrderRequest>> requestPreprocessor;
   private Function<OrderDetails, Mono<Void>> orderSynchronizer;
   private UnaryOperator<Mono<OrderDetails>> orderPersister;
+  private boolean speculativeBooking;
+  private Function<BookingDetails, Mono<Void>> bookingCompensator;
 
   public CreateOrderSupport(SupplierBookingAdapter bookingAdapter) {
+    this(bookingAdapter, Metrics.globalRegistry);
+  }
+  public CreateOrderSupport(SupplierBookingAdapter bookingAdapter, MeterRegistry meterRegistry) {
     Assert.notNull(bookingAdapter, "Booking adapter must be provided");
+    Assert.notNull(meterRegistry, "Meter registry must be provided");
     this.bookingAdapter = bookingAdapter;
+    this.speculationWins = speculation("win", meterRegistry);
+    this.speculationWastes = speculation("waste", meterRegistry);
   }
 
   protected Mono<OrderDetails> createOrder(OrderRequest orderRequest, CreateOrderOptions options) {
-    return Mono.defer(() -> options.requestPreprocessor().apply(orderRequest))
-        .flatMap(request -> Flux.fromStream(request.getSchedules().entrySet().stream().map(it -> Pair.of(it.getKey(), it.getValue())))
-            .flatMapDelayError(pair -> Mono.fromCallable(BookingParameter::builder)
-                .map(builder -> builder.customer(request.getCustomer())
-                    .passengers(request.getPassengers())
-                    .schedule(pair.getValue())
-                    .build())
-                .flatMap(bookingAdapter::create)
-                .map(booking -> Pair.of(pair.getKey(), booking)), 2, 2
-            )
-            .collectMap(Pair::getKey, Pair::getValue)
-            .map(bookings -> OrderDetails.builder()
-                .build()
-            )
+    Mono<Map<JourneyDirection, BookingDetails>> bookings = options.speculativeBooking()
+        ? speculativeBookings(orderRequest, options)
+        : Mono.defer(() -> options.requestPreprocessor().apply(orderRequest))
+            .flatMap(request -> bookings(request, IGNORE_BOOKED));
+
+    return bookings
+        .map(booked -> OrderDetails.builder()
+            .build()
         )
         .flatMap(order -> options.orderSynchronizer().apply(order).thenReturn(order))
         .transform(options.orderPersister());
   }
 
+  /**
+   * Book schedules of original request while preprocessing it. Preprocessor's rejection stops waiting for bookings
+   * in progress and compensates bookings already created. Bookings still in progress aren't cancelled, since supplier
+   * might already received them, instead each is compensated as soon as it completed.
+   */
+  private Mono<Map<JourneyDirection, BookingDetails>> speculativeBookings(OrderRequest orderRequest,
+      CreateOrderOptions options) {
+    Assert.notNull(options.bookingCompensator(), "Booking compensator must be provided for speculative booking");
+
+    Speculation speculation = new Speculation(options.bookingCompensator());
+    Mono<Signal<Map<JourneyDirection, BookingDetails>>> bookings = bookings(orderRequest, speculation::booked)
+        .materialize()
+        .cache();
+
+    return Mono.zip(Mono.defer(() -> options.requestPreprocessor().apply(orderRequest)), bookings)
+        .onErrorResume(error -> wasted(speculation).then(Mono.error(error)))
+        .switchIfEmpty(Mono.defer(() -> wasted(speculation).then(Mono.empty())))
+        .flatMap(preprocessed -> {
+          OrderRequest request = preprocessed.getT1();
+          Signal<Map<JourneyDirection, BookingDetails>> signal = preprocessed.getT2();
+          if (affectsBooking(orderRequest, request)) {
+            return wasted(speculation).then(bookings(request, IGNORE_BOOKED));
+          }
+          if (signal.isOnError()) {
+            return Mono.error(signal.getThrowable());
+          }
+
+          speculationWins.increment();
+          return Mono.justOrEmpty(signal.get());
+        });
+  }
+
+  private Mono<Map<JourneyDirection, BookingDetails>> bookings(OrderRequest request, Consumer<BookingDetails> onBooked) {
+    return Flux.fromStream(request.getSchedules().entrySet().stream().map(it -> Pair.of(it.getKey(), it.getValue())))
+        .flatMapDelayError(pair -> Mono.fromCallable(BookingParameter::builder)
+            .map(builder -> builder.customer(request.getCustomer())
+                .passengers(request.getPassengers())
+                .schedule(pair.getValue())
+                .build())
+            .flatMap(bookingAdapter::create)
+            .doOnNext(onBooked)
+            .map(booking -> Pair.of(pair.getKey(), booking)), 2, 2
+        )
+        .collectMap(Pair::getKey, Pair::getValue);
+  }
+
+  private Mono<Void> wasted(Speculation speculation) {
+    speculationWastes.increment();
+    return speculation.discard();
+  }
+
+  private static boolean affectsBooking(OrderRequest original, OrderRequest preprocessed) {
+    return original != preprocessed
+        && !(Objects.equals(original.getCustomer(), preprocessed.getCustomer())
+            && Objects.equals(original.getPassengers(), preprocessed.getPassengers())
+            && Objects.equals(original.getSchedules(), preprocessed.getSchedules()));
+  }
+
+  private static Counter speculation(String outcome, MeterRegistry meterRegistry) {
+    return Counter.builder("order.speculation")
+        .description("Number of speculative booking, per outcome")
+        .tag("outcome", outcome)
+        .register(meterRegistry);
+  }
+
+  /**
+   * Bookings created by single speculation. Once discarded, booking created so far and every booking
+   * completed later compensated exactly once. Compensation failure is logged, never masking outcome of preprocessor.
+   */
+  private static final class Speculation {
+    private final Function<BookingDetails, Mono<Void>> compensator;
+    private final Queue<BookingDetails> booked = new ConcurrentLinkedQueue<>();
+    private volatile boolean discarded;
+
+    private Speculation(Function<BookingDetails, Mono<Void>> compensator) {
+      this.compensator = compensator;
+    }
+
+    void booked(BookingDetails booking) {
+      booked.add(booking);
+      if (discarded) {
+        compensate().subscribe();
+      }
+    }
+
+    Mono<Void> discard() {
+      discarded = true;
+      return compensate();
+    }
+
+    private Mono<Void> compensate() {
+      return Flux.defer(() -> Flux.fromIterable(drain()))
+          .flatMap(booking -> compensator.apply(booking)
+              .onErrorResume(error -> {
+                log.warn("Failed to compensate speculative booking {}", booking, error);
+                return Mono.empty();
+              }))
+          .then();
+    }
+
+    private List<BookingDetails> drain() {
+      List<BookingDetails> drained = new ArrayList<>();
+      for (BookingDetails booking = booked.poll(); booking != null; booking = booked.poll()) {
+        drained.add(booking);
+      }
+      return drained;
+    }
+  }
+
   protected Mono<CreateOrderOptions> createOptions(Consumer<CreateOrderOptions> customizer) {
     return Mono
         .fromCallable(() -> CreateOrderOptions.empty()
             .requestPreprocessor(this.requestPreprocessor)
             .orderSynchronizer(this.orderSynchronizer)
             .orderPersister(this.orderPersister)
+            .speculativeBooking(this.speculativeBooking)
+            .bookingCompensator(this.bookingCompensator)
         )
         .handle((options, sink) -> {
           if(!Objects.isNull(customizer)) {
@@ -3,6 +3,7 @@ package com.tiket.sharing.fp.template;
 import com.tiket.sharing.fp.model.OrderDetails;
 import com.tiket.sharing.fp.model.OrderRequest;
 import com.tiket.sharing.fp.strategy.SupplierBookingAdapter;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.util.function.Consumer;
 import reactor.core.publisher.Mono;
 
@@ -13,6 +14,9 @@ public class DefaultCreateOrderHandler extends CreateOrderSupport implements Cre
   public DefaultCreateOrderHandler(SupplierBookingAdapter bookingAdapter) {
     super(bookingAdapter);
   }
+  public DefaultCreateOrderHandler(SupplierBookingAdapter bookingAdapter, MeterRegistry meterRegistry) {
+    super(bookingAdapter, meterRegistry);
+  }
 
   @Override
   public Mono<OrderDetails> create(OrderRequest request, Consumer<CreateOrderOptions> customizer) {
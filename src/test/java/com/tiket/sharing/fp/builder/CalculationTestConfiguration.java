@@ -1,5 +1,7 @@
 package com.tiket.sharing.fp.builder;
 
+import static com.tiket.sharing.fp.builder.CustomerFact.FIRST_TRANSACTION;
+import static com.tiket.sharing.fp.builder.FactPredicate.isTrue;
 import static com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.LoyaltyCalculator.constantEarning;
 import static com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.LoyaltyCalculator.earningFactor;
 import static com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.basicMembership;
@@ -37,7 +39,9 @@ class CalculationTestConfiguration {
         hasText(customer.getEmailAddress()) && customer.getEmailAddress().endsWith("@tiket.com");
 
     return LoyaltyCalculationEngine.empty()
-        .calculationRule(basicMembership().and(transactionTracker::firstTransaction),
+        .factSource(new CustomerFactSource()
+            .loader(FIRST_TRANSACTION, FactLoader.blocking(transactionTracker::firstTransaction)))
+        .calculationRule(basicMembership().and(isTrue(FIRST_TRANSACTION)),
             earningFactor(.02, ofDays(120))
                 .thenAccumulate(constantEarning(75, ofDays(100))))
         .calculationRule(basicMembership().and(tiketFamilyMember),
@@ -0,0 +1,124 @@
+package com.tiket.sharing.fp.builder;
+
+import static com.tiket.sharing.fp.builder.CustomerFact.FIRST_TRANSACTION;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.MembershipTier;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see CustomerFactSource
+ */
+class CustomerFactSourceTests {
+  private static final CustomerFact<Integer> ORDER_COUNT = CustomerFact.of("order-count", Integer.class, 0);
+
+  private final List<Set<CustomerProfile>> batches = new CopyOnWriteArrayList<>();
+  private final CustomerFactSource factSource = new CustomerFactSource(CustomerFactSource.Settings.builder()
+      .maxSize(10).maxLinger(Duration.ofMillis(50))
+      .build())
+      .loader(FIRST_TRANSACTION, customers -> {
+        batches.add(customers);
+        return Mono.just(customers.stream()
+            .collect(Collectors.toMap(customer -> customer, customer -> customer.getFullName().startsWith("New"))));
+      })
+      .loader(ORDER_COUNT, customers -> Mono.just(Collections.emptyMap()));
+
+  @AfterEach
+  void tearDown() {
+    factSource.dispose();
+  }
+
+  @Test
+  void whenLoadFactsOfManyCustomers_thenShouldLoadInBatches() {
+    StepVerifier
+        .create(Flux.range(0, 20)
+            .flatMap(index -> factSource.facts(customer(index % 2 == 0 ? "New " + index : "Old " + index),
+                Collections.singleton(FIRST_TRANSACTION)))
+            .map(facts -> facts.get(FIRST_TRANSACTION))
+            .collectList())
+        .expectSubscription().thenAwait()
+        .assertNext(values -> assertThat(values)
+            .hasSize(20)
+            .filteredOn(Boolean::booleanValue).hasSize(10))
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+
+    assertThat(batches).hasSize(2)
+        .allSatisfy(batch -> assertThat(batch).hasSize(10));
+  }
+
+  @Test
+  void whenLingerFlushesWhileLoadSlow_thenShouldKeepLoading() {
+    CustomerFactSource slowSource = new CustomerFactSource(CustomerFactSource.Settings.builder()
+        .concurrency(1)
+        .build())
+        .loader(ORDER_COUNT, customers -> Mono.delay(Duration.ofMillis(300))
+            .thenReturn(customers.stream().collect(Collectors.toMap(customer -> customer, customer -> 1))));
+
+    try {
+      StepVerifier
+          .create(Flux.range(0, 6).delayUntil(index -> Mono.delay(Duration.ofMillis(20)))
+              .flatMap(index -> slowSource.facts(customer("Customer " + index), Collections.singleton(ORDER_COUNT)))
+              .map(facts -> facts.get(ORDER_COUNT)))
+          .expectNext(1, 1, 1, 1, 1, 1)
+          .expectComplete()
+          .verify(Duration.ofSeconds(5));
+    }
+    finally {
+      slowSource.dispose();
+    }
+  }
+
+  @Test
+  void whenFactNotLoaded_thenShouldUseDefaultValue() {
+    StepVerifier
+        .create(factSource.facts(customer("Old"), Collections.singleton(ORDER_COUNT)))
+        .expectSubscription().thenAwait()
+        .assertNext(facts -> assertThat(facts.get(ORDER_COUNT)).isZero())
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+  }
+
+  @Test
+  void whenRuleNeedsFact_thenShouldSelectCalculatorAfterFactLoaded() {
+    LoyaltyCalculationEngine calculationEngine = LoyaltyCalculationEngine.empty()
+        .factSource(factSource)
+        .calculationRule(LoyaltyCalculationEngine.basicMembership().and(FactPredicate.isTrue(FIRST_TRANSACTION)),
+            LoyaltyCalculationEngine.LoyaltyCalculator.constantEarning(75, Duration.ofDays(100)))
+        .defaultFactor(.01);
+
+    StepVerifier
+        .create(calculationEngine.calculator(customer("New Customer")).calculate(BigDecimal.valueOf(10_000)))
+        .expectSubscription().thenAwait()
+        .assertNext(earning -> assertThat(earning.getPoints()).isEqualTo(75))
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+
+    StepVerifier
+        .create(calculationEngine.calculator(customer("Old Customer")).calculate(BigDecimal.valueOf(10_000)))
+        .expectSubscription().thenAwait()
+        .assertNext(earning -> assertThat(earning.getPoints()).isEqualTo(100))
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+  }
+
+  private static CustomerProfile customer(String name) {
+    return CustomerProfile.builder()
+        .title("Mr").fullName(name).memberTier(MembershipTier.BASIC)
+        .emailAddress("asd@qwe.com")
+        .build();
+  }
+}
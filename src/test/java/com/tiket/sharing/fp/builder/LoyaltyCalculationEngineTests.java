@@ -1,19 +1,37 @@
 package com.tiket.sharing.fp.builder;
 
+import static com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.LoyaltyCalculator.constantEarning;
+import static com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.LoyaltyCalculator.earningFactor;
 import static java.math.BigDecimal.valueOf;
+import static java.time.Duration.ofDays;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
 
+import com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.LoyaltyCalculator;
+import com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.PointCalculator;
+import com.tiket.sharing.fp.model.Clocks;
+import com.tiket.sharing.fp.model.Clocks.VirtualClock;
 import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.LoyaltyEarning;
 import com.tiket.sharing.fp.model.MembershipTier;
+import com.tiket.sharing.fp.model.Money;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import org.apache.commons.lang3.tuple.Pair;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 /**
@@ -80,6 +98,127 @@ class LoyaltyCalculationEngineTests {
         .verify(Duration.ofSeconds(3));
   }
 
+  @Test
+  void whenCalculateForGoldTiketFamily_thenShouldSuccess() {
+    when(transactionTracker.firstTransaction(any(CustomerProfile.class)))
+        .thenReturn(false);
+
+    StepVerifier
+        .create(calculateEngine.calculator(GOLD_INTERNAL_CUSTOMER).calculate(valueOf(10_000)))
+        .expectSubscription().thenAwait()
+        .assertNext(earning -> assertThat(earning.getPoints()).isEqualTo(380))
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+  }
+
+  @Test
+  void whenAccumulateLinearCalculators_thenShouldCalculateSynchronously() {
+    LoyaltyCalculator calculator = earningFactor(.02, ofDays(120))
+        .thenAccumulate(constantEarning(75, ofDays(100)));
+
+    assertThat(calculator).isInstanceOf(PointCalculator.class);
+    assertThat(((PointCalculator) calculator).points(10_000)).isEqualTo(275);
+
+    StepVerifier
+        .create(calculator.calculate(valueOf(10_000)))
+        .expectSubscription().thenAwait()
+        .assertNext(earning -> assertThat(earning.getPoints()).isEqualTo(275))
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+  }
+
+  @Test
+  void whenCalculateMoneyAmount_thenShouldRoundDown() {
+    when(transactionTracker.firstTransaction(any(CustomerProfile.class)))
+        .thenReturn(false);
+
+    StepVerifier
+        .create(calculateEngine.calculator(BASIC_TIER_CUSTOMER)
+            .calculate(Money.parse("10049.99", Money.DEFAULT_CURRENCY, RoundingMode.HALF_EVEN)))
+        .expectSubscription().thenAwait()
+        .assertNext(earning -> assertThat(earning.getPoints()).isEqualTo(200))
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+  }
+
+  @Test
+  void whenCalculateDecimalAmount_thenShouldNotTruncateFractionFirst() {
+    StepVerifier.create(earningFactor(2, ofDays(100)).calculate(new BigDecimal("3.5")))
+        .assertNext(earning -> assertThat(earning.getPoints()).isEqualTo(7))
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+  }
+
+  @Test
+  void whenInexactDoubleFactor_thenShouldNotOverflow() {
+    PointCalculator calculator = earningFactor(0.1 + 0.2, ofDays(100));
+
+    assertThat(calculator.points(1_000_000_000L)).isEqualTo(300_000_000L);
+    assertThat(calculator.points(100_000_000_000L, 2, RoundingMode.DOWN)).isEqualTo(300_000_000L);
+  }
+
+  @Test
+  void whenCalculateAllTransactions_thenShouldEmitInOrder() {
+    when(transactionTracker.firstTransaction(any(CustomerProfile.class)))
+        .thenReturn(false);
+
+    Flux<Pair<CustomerProfile, BigDecimal>> transactions = Flux.range(0, 1_000)
+        .map(index -> index % 2 == 0
+            ? Pair.of(BASIC_TIER_CUSTOMER, valueOf(10_000))
+            : Pair.of(GOLD_INTERNAL_CUSTOMER, valueOf(10_000)));
+
+    StepVerifier
+        .create(calculateEngine.calculateAll(transactions).map(LoyaltyEarning::getPoints).buffer(2))
+        .expectSubscription().thenAwait()
+        .thenConsumeWhile(points -> points.get(0) == 200 && points.get(1) == 380)
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+  }
+
+  @Test
+  void whenCalculateAllWithEngineClock_thenShouldAnchorExpiryOnSubscription() {
+    VirtualClock clock = Clocks.virtual(Instant.parse("2020-10-01T00:00:00Z"), ZoneOffset.UTC);
+    LoyaltyCalculationEngine engine = LoyaltyCalculationEngine.empty(clock).defaultFactor(.01);
+    Flux<Pair<CustomerProfile, BigDecimal>> transactions = Flux.range(0, 10)
+        .map(index -> Pair.of(BASIC_TIER_CUSTOMER, valueOf(10_000)))
+        .doOnNext(transaction -> clock.advance(Duration.ofHours(1)));
+
+    clock.advance(Duration.ofDays(1));
+    StepVerifier.create(engine.calculateAll(transactions).map(LoyaltyEarning::getExpiryTime).collectList())
+        .assertNext(expiries -> assertThat(expiries).hasSize(10)
+            .containsOnly(LocalDateTime.of(2020, 10, 2, 0, 0).plusDays(100)))
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+  }
+
+  @Test
+  void whenCalculateWithEngineClock_thenEveryCalculatorShouldUseIt() {
+    Clock clock = Clock.fixed(Instant.parse("2020-10-01T00:00:00Z"), ZoneOffset.UTC);
+    LoyaltyCalculationEngine.DefaultCalculationEngine engine = LoyaltyCalculationEngine.empty(clock)
+        .calculationRule(LoyaltyCalculationEngine.goldMembership(), earningFactor(.01, ofDays(10))
+            .thenAccumulate(amount -> Mono.just(LoyaltyEarning.create(5, ofDays(1)))))
+        .defaultFactor(.01);
+
+    StepVerifier.create(engine.calculator(BASIC_TIER_CUSTOMER).calculate(valueOf(10_000)))
+        .assertNext(earning -> assertThat(earning.getExpiryTime()).isEqualTo(LocalDateTime.of(2021, 1, 9, 0, 0)))
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+    StepVerifier.create(engine.calculator(GOLD_INTERNAL_CUSTOMER).calculate(valueOf(10_000)))
+        .assertNext(earning -> {
+          assertThat(earning.getPoints()).isEqualTo(105);
+          assertThat(earning.getExpiryTime()).isEqualTo(LocalDateTime.of(2021, 1, 9, 0, 0));
+        })
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+
+    engine.publish(RuleSet.empty().withRule(LoyaltyCalculationEngine.basicMembership(),
+        constantEarning(1, ofDays(1))));
+    StepVerifier.create(engine.calculator(BASIC_TIER_CUSTOMER).calculate(valueOf(10_000)))
+        .assertNext(earning -> assertThat(earning.getExpiryTime()).isEqualTo(LocalDateTime.of(2020, 10, 2, 0, 0)))
+        .expectComplete()
+        .verify(Duration.ofSeconds(3));
+  }
+
   @AfterEach
   void tearDown() {
     reset(transactionTracker);
@@ -95,6 +234,11 @@ class LoyaltyCalculationEngineTests {
       .emailAddress("pegawe@tiket.com")
       .build();
 
+  private static final CustomerProfile GOLD_INTERNAL_CUSTOMER = CustomerProfile.builder()
+      .title("Mr").fullName("Gold Tier Customer").memberTier(MembershipTier.GOLD)
+      .emailAddress("bos@tiket.com")
+      .build();
+
   private static final CustomerProfile NULL_TIER_CUSTOMER = CustomerProfile.builder()
       .title("Mr").fullName("Basic Tier Customer")
       .emailAddress("asd@rty.com")
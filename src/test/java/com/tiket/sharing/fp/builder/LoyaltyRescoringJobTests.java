@@ -0,0 +1,110 @@
+package com.tiket.sharing.fp.builder;
+
+import static com.tiket.sharing.fp.builder.CustomerFact.FIRST_TRANSACTION;
+import static com.tiket.sharing.fp.builder.FactPredicate.isTrue;
+import static com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.LoyaltyCalculator.earningFactor;
+import static com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.basicMembership;
+import static com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.goldMembership;
+import static java.time.Duration.ofDays;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.tiket.sharing.fp.builder.LoyaltyRescoringJob.Settings;
+import com.tiket.sharing.fp.builder.LoyaltyRescoringJob.Summary;
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.MembershipTier;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * @author zakyalvan
+ * @see LoyaltyRescoringJob
+ */
+class LoyaltyRescoringJobTests {
+  private final LoyaltyCalculationEngine calculationEngine = LoyaltyCalculationEngine.empty()
+      .calculationRule(basicMembership(), earningFactor(.02, ofDays(120)))
+      .calculationRule(goldMembership().and(customer -> customer.getEmailAddress().endsWith("@tiket.com")),
+          earningFactor(.03, ofDays(150))
+              .thenAccumulate(earningFactor(.008, ofDays(100))))
+      .calculationRule(goldMembership(), earningFactor(.03, ofDays(150)))
+      .defaultFactor(.005);
+
+  @Test
+  void whenRescoreTransactions_thenShouldWriteCustomerTotals(@TempDir Path directory) throws Exception {
+    Path input = directory.resolve("transactions.bin");
+    Path output = directory.resolve("totals.bin");
+    try (TransactionFile.Writer writer = TransactionFile.writer(input)) {
+      writer.write(1, 1_000_000, MembershipTier.BASIC, false)
+          .write(2, 1_000_000, MembershipTier.GOLD, true)
+          .write(1, 1_000_000, MembershipTier.BASIC, false)
+          .write(3, 1_000_000, null, false)
+          .write(4, 1_000_000, MembershipTier.GOLD, false);
+    }
+
+    Summary summary = new LoyaltyRescoringJob(calculationEngine, Settings.builder()
+        .fractionDigits(2).chunkRecords(2).parallelism(2)
+        .build())
+        .run(input, output);
+
+    assertThat(summary.getRecords()).isEqualTo(5);
+    assertThat(summary.getCustomers()).isEqualTo(4);
+
+    Map<Long, Long> totals = LoyaltyRescoringJob.readTotals(output);
+    assertThat(totals)
+        .containsEntry(1L, 400L)
+        .containsEntry(2L, 380L)
+        .containsEntry(3L, 50L)
+        .containsEntry(4L, 300L)
+        .hasSize(4);
+  }
+
+  @Test
+  void whenRescoreGeneratedTransactions_thenShouldScoreAllRecords(@TempDir Path directory) throws Exception {
+    Path input = directory.resolve("transactions.bin");
+    Path output = directory.resolve("totals.bin");
+    TransactionFile.generate(input, 100_000, 1_000, 42);
+
+    Summary summary = new LoyaltyRescoringJob(calculationEngine, Settings.builder()
+        .chunkRecords(10_000)
+        .build())
+        .run(input, output);
+
+    assertThat(summary.getRecords()).isEqualTo(100_000);
+    assertThat(LoyaltyRescoringJob.readTotals(output))
+        .hasSize((int) summary.getCustomers())
+        .allSatisfy((customer, points) -> assertThat(points).isPositive());
+  }
+
+  @Test
+  void whenTotalsLargerThanReadBuffer_thenShouldReadAllTotals(@TempDir Path directory) throws Exception {
+    Path input = directory.resolve("transactions.bin");
+    Path output = directory.resolve("totals.bin");
+    TransactionFile.generate(input, 50_000, 10_000, 42);
+
+    Summary summary = new LoyaltyRescoringJob(calculationEngine).run(input, output);
+
+    assertThat(summary.getCustomers()).isGreaterThan(4096);
+    assertThat(LoyaltyRescoringJob.readTotals(output))
+        .hasSize((int) summary.getCustomers())
+        .allSatisfy((customer, points) -> assertThat(customer).isBetween(0L, 9_999L));
+  }
+
+  @Test
+  void whenRuleDependsOnFacts_thenShouldRejectRescoring() {
+    LoyaltyCalculationEngine factEngine = LoyaltyCalculationEngine.empty()
+        .calculationRule(basicMembership().and(isTrue(FIRST_TRANSACTION)), earningFactor(.02, ofDays(120)))
+        .calculationRule(goldMembership(), earningFactor(.03, ofDays(150)))
+        .calculationRule(goldMembership().and(isTrue(FIRST_TRANSACTION)), earningFactor(.04, ofDays(150)));
+
+    assertThatThrownBy(() -> new LoyaltyRescoringJob(factEngine))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("BASIC")
+        .hasMessageContaining(FIRST_TRANSACTION.getName());
+    assertThat(factEngine.facts(CustomerProfile.builder()
+        .title("Mr").fullName("Gold Tier Customer").memberTier(MembershipTier.GOLD)
+        .emailAddress("gold@gmail.com")
+        .build())).isEmpty();
+  }
+}
@@ -0,0 +1,169 @@
+package com.tiket.sharing.fp.builder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.DefaultCalculationEngine;
+import com.tiket.sharing.fp.builder.LoyaltyCalculationEngine.PointCalculator;
+import com.tiket.sharing.fp.builder.RuleSetReader.RuleSyntaxException;
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.MembershipTier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see RuleSet
+ * @see RuleSetReader
+ * @see RuleSetWatcher
+ */
+class RuleSetTests {
+  private static final String RULES = "# loyalty rules\n"
+      + "rule basic => factor 0.02 120d + constant 75\n"
+      + "rule gold => factor 0.03 150d\n"
+      + "\n"
+      + "default 0.005\n";
+
+  @Test
+  void whenReadRuleText_thenShouldCompileRuleSet() throws Exception {
+    RuleSet ruleSet = RuleSetReader.text().read(new StringReader(RULES));
+
+    assertThat(ruleSet.size()).isEqualTo(2);
+    assertThat(points(ruleSet, MembershipTier.BASIC)).isEqualTo(275);
+    assertThat(points(ruleSet, MembershipTier.GOLD)).isEqualTo(300);
+    assertThat(points(ruleSet, MembershipTier.PLATINUM)).isEqualTo(50);
+    assertThat(points(ruleSet, null)).isEqualTo(50);
+  }
+
+  @Test
+  void whenReadRuleDsl_thenShouldMatchHandWrittenRules() throws Exception {
+    Set<String> firstTransactions = Collections.singleton("first@qwe.com");
+    Map<String, Predicate<CustomerProfile>> conditions = Collections.singletonMap("first-transaction",
+        customer -> firstTransactions.contains(customer.getEmailAddress()));
+
+    RuleSet ruleSet = RuleSetReader.text(conditions).read(new StringReader(""
+        + "rule basic and first-transaction => factor 0.02 120d + constant 75\n"
+        + "rule basic and domain tiket.com => factor 0.02 120d + factor 0.005\n"
+        + "rule basic => factor 0.02 120d\n"
+        + "rule gold and domain tiket.com => factor 0.03 150d + factor 0.008 + constant 100 min 50000\n"
+        + "rule gold => factor 0.03 150d\n"
+        + "default 0.005\n"));
+
+    assertThat(points(ruleSet, customer(MembershipTier.BASIC, "first@qwe.com"), 10_000)).isEqualTo(275);
+    assertThat(points(ruleSet, customer(MembershipTier.BASIC, "pegawe@TIKET.com"), 10_000)).isEqualTo(250);
+    assertThat(points(ruleSet, customer(MembershipTier.BASIC, "asd@qwe.com"), 10_000)).isEqualTo(200);
+    assertThat(points(ruleSet, customer(MembershipTier.GOLD, "bos@tiket.com"), 10_000)).isEqualTo(380);
+    assertThat(points(ruleSet, customer(MembershipTier.GOLD, "bos@tiket.com"), 50_000)).isEqualTo(2_000);
+    assertThat(points(ruleSet, customer(null, "bos@tiket.com"), 10_000)).isEqualTo(50);
+  }
+
+  @Test
+  void whenReadInvalidRuleText_thenShouldFailWithLine() {
+    assertThatThrownBy(() -> RuleSetReader.text().read(new StringReader("rule basic => factor 0.02\nrule diamond => constant 1")))
+        .isInstanceOf(RuleSyntaxException.class)
+        .satisfies(error -> assertThat(((RuleSyntaxException) error).getLine()).isEqualTo(2));
+  }
+
+  @Test
+  void whenPublishRuleSet_thenShouldNotAffectSelectedCalculator() throws Exception {
+    DefaultCalculationEngine calculationEngine = LoyaltyCalculationEngine.empty().defaultFactor(.01);
+    PointCalculator previous = (PointCalculator) calculationEngine.calculator(customer(MembershipTier.BASIC));
+    long version = calculationEngine.ruleSet().getVersion();
+
+    RuleSet published = calculationEngine.publish(RuleSetReader.text().read(new StringReader(RULES)));
+
+    assertThat(published.getVersion()).isEqualTo(version + 1);
+    assertThat(previous.points(10_000)).isEqualTo(100);
+    assertThat(((PointCalculator) calculationEngine.calculator(customer(MembershipTier.BASIC))).points(10_000))
+        .isEqualTo(275);
+  }
+
+  @Test
+  void whenRuleFileChanged_thenShouldPublishNewVersion(@TempDir Path directory) throws Exception {
+    Path ruleFile = directory.resolve("loyalty.rules");
+    Files.write(ruleFile, RULES.getBytes(UTF_8));
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DefaultCalculationEngine calculationEngine = LoyaltyCalculationEngine.empty();
+    try (RuleSetWatcher watcher = new RuleSetWatcher(calculationEngine, ruleFile, RuleSetReader.text(), meterRegistry)
+        .start()) {
+      assertThat(points(calculationEngine.ruleSet(), MembershipTier.GOLD)).isEqualTo(300);
+
+      Files.write(ruleFile, "rule gold => factor 0.04 150d\n".getBytes(UTF_8));
+      StepVerifier
+          .create(Flux.interval(Duration.ofMillis(20))
+              .map(tick -> points(calculationEngine.ruleSet(), MembershipTier.GOLD))
+              .filter(points -> points == 400)
+              .next())
+          .expectNext(400L)
+          .expectComplete()
+          .verify(Duration.ofSeconds(10));
+
+
+      assertThat(meterRegistry.get("loyalty.rules.version").gauge().value())
+          .isEqualTo(calculationEngine.ruleSet().getVersion());
+      assertThat(meterRegistry.get("loyalty.rules.swap").timer().count()).isGreaterThanOrEqualTo(2);
+    }
+  }
+
+  @Test
+  void whenReorderExclusiveRules_thenShouldEvaluateHotRuleFirst() throws Exception {
+    DefaultCalculationEngine calculationEngine = LoyaltyCalculationEngine.empty();
+    calculationEngine.publish(RuleSetReader.text().read(new StringReader(""
+        + "exclusive rule gold and domain partner.com => factor 0.035 150d\n"
+        + "exclusive rule gold and domain tiket.com => factor 0.04 150d\n"
+        + "rule gold => factor 0.03 150d\n")));
+
+    CustomerProfile employee = customer(MembershipTier.GOLD, "bos@tiket.com");
+    CustomerProfile partner = customer(MembershipTier.GOLD, "bos@partner.com");
+    for (int index = 0; index < 1_000; index++) {
+      assertThat(points(calculationEngine.ruleSet(), employee, 10_000)).isEqualTo(400);
+    }
+    assertThat(calculationEngine.ruleSet().statistics())
+        .extracting(RuleSet.RuleStatistics::getEvaluations)
+        .containsExactly(1_000L, 1_000L, 0L);
+
+    RuleSet reordered = calculationEngine.reorder();
+    for (int index = 0; index < 1_000; index++) {
+      assertThat(points(reordered, employee, 10_000)).isEqualTo(400);
+    }
+
+    assertThat(reordered.statistics())
+        .extracting(RuleSet.RuleStatistics::getEvaluations)
+        .containsExactly(1_000L, 2_000L, 0L);
+    assertThat(reordered.statistics().get(1).getHitRate()).isEqualTo(1);
+    assertThat(points(reordered, partner, 10_000)).isEqualTo(350);
+    assertThat(points(reordered, customer(MembershipTier.GOLD), 10_000)).isEqualTo(300);
+  }
+
+  private static long points(RuleSet ruleSet, MembershipTier tier) {
+    return points(ruleSet, customer(tier), 10_000);
+  }
+
+  private static long points(RuleSet ruleSet, CustomerProfile customer, long amount) {
+    return ((PointCalculator) ruleSet.calculator(customer)).points(amount);
+  }
+
+  private static CustomerProfile customer(MembershipTier tier) {
+    return customer(tier, "asd@qwe.com");
+  }
+
+  private static CustomerProfile customer(MembershipTier tier, String emailAddress) {
+    return CustomerProfile.builder()
+        .title("Mr").fullName("Rule Set Customer").memberTier(tier)
+        .emailAddress(emailAddress)
+        .build();
+  }
+}
@@ -0,0 +1,128 @@
+package com.tiket.sharing.fp.chain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tiket.sharing.fp.model.Clocks;
+import com.tiket.sharing.fp.model.Clocks.VirtualClock;
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.MembershipTier;
+import com.tiket.sharing.fp.model.OrderIdentifier;
+import com.tiket.sharing.fp.model.OrderRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see BloomFilterOrderTracker
+ */
+class BloomFilterOrderTrackerTests {
+  private static final OrderIdentifier IDENTIFIER = OrderIdentifier.by("1234", "ASDQWERTZYU");
+
+  private final AtomicInteger lookups = new AtomicInteger();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final BloomFilterOrderTracker orderTracker = new BloomFilterOrderTracker(new CustomerOrderTracker() {
+    @Override
+    public Mono<OrderIdentifier> duplicateOrder(OrderRequest orderRequest) {
+      lookups.incrementAndGet();
+      return Mono.just(IDENTIFIER);
+    }
+
+    @Override
+    public Mono<Integer> activeCount(String customerEmail) {
+      return Mono.just(0);
+    }
+  }, BloomFilterOrderTracker.Settings.builder().expectedInsertions(1_000).build(), meterRegistry);
+
+  @Test
+  void whenNotWarmedUp_thenShouldDelegate() {
+    StepVerifier.create(orderTracker.duplicateOrder(request("first@qwe.com")))
+        .expectNext(IDENTIFIER)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(lookups).hasValue(1);
+  }
+
+  @Test
+  void whenWarmedUp_thenShouldOnlyDelegatePossibleDuplicates() {
+    StepVerifier.create(orderTracker.warmUp(Flux.just(request("first@qwe.com"))))
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+    orderTracker.orderCreated(request("second@qwe.com"), IDENTIFIER);
+
+    for (int index = 0; index < 100; index++) {
+      StepVerifier.create(orderTracker.duplicateOrder(request("customer" + index + "@qwe.com")))
+          .expectComplete()
+          .verify(Duration.ofSeconds(5));
+    }
+    StepVerifier.create(orderTracker.duplicateOrder(request("first@qwe.com")))
+        .expectNext(IDENTIFIER)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+    StepVerifier.create(orderTracker.duplicateOrder(request("second@qwe.com")))
+        .expectNext(IDENTIFIER)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(lookups).hasValue(2);
+    assertThat(meterRegistry.get("order.tracker.bloom.screened").counter().count()).isEqualTo(100);
+    assertThat(meterRegistry.get("order.tracker.bloom.fpp").gauge().value()).isLessThan(.01);
+    assertThat(meterRegistry.get("order.tracker.bloom.bytes").gauge().value()).isPositive();
+  }
+
+  @Test
+  void whenWindowsElapsedWithoutWarmUp_thenShouldStillDelegate() {
+    VirtualClock clock = Clocks.virtual(Instant.parse("2020-10-01T00:00:00Z"), ZoneOffset.UTC);
+    BloomFilterOrderTracker shortWindowed = new BloomFilterOrderTracker(new CustomerOrderTracker() {
+      @Override
+      public Mono<OrderIdentifier> duplicateOrder(OrderRequest orderRequest) {
+        lookups.incrementAndGet();
+        return Mono.just(IDENTIFIER);
+      }
+
+      @Override
+      public Mono<Integer> activeCount(String customerEmail) {
+        return Mono.just(0);
+      }
+    }, BloomFilterOrderTracker.Settings.builder()
+        .window(Duration.ofMillis(10)).clock(clock)
+        .build(), new SimpleMeterRegistry());
+    clock.advance(Duration.ofMillis(30));
+
+    StepVerifier.create(shortWindowed.duplicateOrder(request("first@qwe.com")))
+        .expectNext(IDENTIFIER)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(lookups).hasValue(1);
+  }
+
+  @Test
+  void whenCustomerHasNoEmail_thenShouldScreenWithoutError() {
+    StepVerifier.create(orderTracker.warmUp(Flux.just(request(null))))
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    StepVerifier.create(orderTracker.duplicateOrder(request(null)))
+        .expectNext(IDENTIFIER)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+  }
+
+  private static OrderRequest request(String emailAddress) {
+    return OrderRequest.builder()
+        .customer(CustomerProfile.builder()
+            .title("Mr").fullName("Bloom Customer")
+            .emailAddress(emailAddress)
+            .memberTier(MembershipTier.BASIC)
+            .build())
+        .build();
+  }
+}
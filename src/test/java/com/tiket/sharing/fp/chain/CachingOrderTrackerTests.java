@@ -0,0 +1,115 @@
+package com.tiket.sharing.fp.chain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.MembershipTier;
+import com.tiket.sharing.fp.model.OrderIdentifier;
+import com.tiket.sharing.fp.model.OrderRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see CachingOrderTracker
+ */
+class CachingOrderTrackerTests {
+  private final AtomicInteger duplicateLookups = new AtomicInteger();
+  private final AtomicInteger countLookups = new AtomicInteger();
+  private final AtomicInteger activeCount = new AtomicInteger(1);
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final CachingOrderTracker orderTracker = new CachingOrderTracker(new CustomerOrderTracker() {
+    @Override
+    public Mono<OrderIdentifier> duplicateOrder(OrderRequest orderRequest) {
+      return Mono.delay(Duration.ofMillis(50))
+          .doOnSubscribe(subscription -> duplicateLookups.incrementAndGet())
+          .then(Mono.empty());
+    }
+
+    @Override
+    public Mono<Integer> activeCount(String customerEmail) {
+      return Mono.delay(Duration.ofMillis(50))
+          .doOnSubscribe(subscription -> countLookups.incrementAndGet())
+          .map(tick -> activeCount.get());
+    }
+  }, CachingOrderTracker.Settings.builder().build(), meterRegistry);
+
+  @Test
+  void whenConcurrentLookups_thenShouldLoadOnce() {
+    StepVerifier.create(Flux.range(0, 10)
+        .flatMap(index -> orderTracker.activeCount(EMAIL))
+        .collectList())
+        .assertNext(counts -> assertThat(counts).hasSize(10).containsOnly(1))
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    StepVerifier.create(orderTracker.activeCount(EMAIL))
+        .expectNext(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(countLookups).hasValue(1);
+    assertThat(orderTracker.activeCountStats().hitCount()).isEqualTo(10);
+    assertThat(meterRegistry.get("order.tracker.load").tag("cache", "active-count").timer().count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.get("order.tracker.hit.ratio").tag("cache", "active-count").gauge().value())
+        .isGreaterThan(.9);
+  }
+
+  @Test
+  void whenOrderCreated_thenShouldDetectDuplicateAndReloadCount() {
+    StepVerifier.create(orderTracker.duplicateOrder(ORDER_REQUEST))
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+    StepVerifier.create(orderTracker.activeCount(EMAIL))
+        .expectNext(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    activeCount.incrementAndGet();
+    orderTracker.orderCreated(ORDER_REQUEST, OrderIdentifier.by("1234", "ASDQWERTZYU"));
+
+    StepVerifier.create(orderTracker.duplicateOrder(ORDER_REQUEST))
+        .expectNext(OrderIdentifier.by("1234", "ASDQWERTZYU"))
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+    StepVerifier.create(orderTracker.activeCount(EMAIL))
+        .expectNext(2)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(duplicateLookups).hasValue(1);
+    assertThat(countLookups).hasValue(2);
+  }
+
+  @Test
+  void whenNoDuplicateFound_thenShouldNotCacheAbsence() {
+    StepVerifier.create(Flux.range(0, 5)
+        .flatMap(index -> orderTracker.duplicateOrder(ORDER_REQUEST))
+        .collectList())
+        .assertNext(identifiers -> assertThat(identifiers).isEmpty())
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+    StepVerifier.create(orderTracker.duplicateOrder(ORDER_REQUEST))
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(duplicateLookups).hasValue(2);
+  }
+
+  private static final String EMAIL = "mang.oleh@odading.com";
+
+  private static final OrderRequest ORDER_REQUEST = OrderRequest.builder()
+      .customer(CustomerProfile.builder()
+          .title("Mr").fullName("Mang Oleh")
+          .emailAddress(EMAIL).phoneNumber("6281320123123")
+          .memberTier(MembershipTier.BASIC)
+          .build())
+      .build();
+}
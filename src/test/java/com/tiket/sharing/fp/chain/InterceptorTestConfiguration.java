@@ -4,6 +4,7 @@ import static com.tiket.sharing.fp.chain.InterceptorTestConfiguration.DoubleOrde
 import static com.tiket.sharing.fp.chain.InterceptorTestConfiguration.MaximumOrderException.maximumOrderError;
 
 import com.tiket.sharing.fp.chain.RequestInterceptor.InterceptorChain;
+import com.tiket.sharing.fp.chain.RequestInterceptor.ValidatingInterceptor;
 import com.tiket.sharing.fp.model.OrderIdentifier;
 import com.tiket.sharing.fp.model.OrderRequest;
 import java.util.stream.Collectors;
@@ -31,18 +32,17 @@ class InterceptorTestConfiguration {
   @Bean
   @Order(0)
   RequestInterceptor doubleOrderChecker(CustomerOrderTracker orderTracker) {
-    return (request, chain) -> orderTracker.duplicateOrder(request)
-        .<OrderRequest>flatMap(identifier -> doubleOrderError(request, identifier))
-        .switchIfEmpty(chain.evaluate(request));
+    return (ValidatingInterceptor) request -> orderTracker.duplicateOrder(request)
+        .flatMap(identifier -> doubleOrderError(request, identifier));
   }
 
   @Bean
   @Order(1)
   RequestInterceptor activeCountChecker(CustomerOrderTracker orderTracker) {
-    return (request, chain) -> orderTracker.activeCount(request.getCustomer().getEmailAddress())
+    return (ValidatingInterceptor) request -> orderTracker.activeCount(request.getCustomer().getEmailAddress())
         .filter(count -> count < 5)
         .switchIfEmpty(maximumOrderError(request))
-        .then(chain.evaluate(request));
+        .then();
   }
 
   static class DoubleOrderException extends RequestInterceptException {
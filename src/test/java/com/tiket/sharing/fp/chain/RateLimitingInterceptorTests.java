@@ -0,0 +1,117 @@
+package com.tiket.sharing.fp.chain;
+
+import static com.tiket.sharing.fp.chain.RateLimitingInterceptor.RateLimitExceededException.rateLimitError;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tiket.sharing.fp.chain.RateLimitingInterceptor.RateLimitExceededException;
+import com.tiket.sharing.fp.chain.RequestInterceptor.InterceptorChain;
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.MembershipTier;
+import com.tiket.sharing.fp.model.OrderRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see RateLimitingInterceptor
+ */
+class RateLimitingInterceptorTests {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final RateLimitingInterceptor interceptor = new RateLimitingInterceptor(RateLimitingInterceptor.Settings
+      .builder()
+      .limit(10).period(Duration.ofHours(1)).burst(3)
+      .build(), meterRegistry);
+
+  @Test
+  void whenBurstExceeded_thenShouldRejectCustomer() {
+    InterceptorChain chain = InterceptorChain.of(Collections.singletonList(interceptor));
+    OrderRequest request = request("mang.oleh@odading.com");
+    for (int index = 0; index < 3; index++) {
+      StepVerifier.create(chain.evaluate(request))
+          .expectNext(request)
+          .expectComplete()
+          .verify(Duration.ofSeconds(5));
+    }
+
+    StepVerifier.create(chain.evaluate(request))
+        .expectErrorSatisfies(error -> {
+          assertThat(rateLimitError(error)).isTrue();
+          assertThat(RequestInterceptException.requestInterceptError(error)).isTrue();
+          assertThat(((RateLimitExceededException) error).getRetryAfter()).isPositive();
+        })
+        .verify(Duration.ofSeconds(5));
+
+    StepVerifier.create(chain.evaluate(request("other@odading.com")))
+        .expectNextCount(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+    assertThat(meterRegistry.get("order.ratelimit.rejected").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void whenManyThreadsHammerHotCustomer_thenShouldAllowOnlyBurst() throws Exception {
+    int threads = 16;
+    OrderRequest request = request("hot@odading.com");
+    AtomicInteger allowed = new AtomicInteger();
+    AtomicInteger rejected = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (int thread = 0; thread < threads; thread++) {
+        executor.execute(() -> {
+          try {
+            start.await();
+            for (int index = 0; index < 1_000; index++) {
+              try {
+                interceptor.intercept(request);
+                allowed.incrementAndGet();
+              }
+              catch (RateLimitExceededException e) {
+                rejected.incrementAndGet();
+              }
+            }
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+      }
+      start.countDown();
+    }
+    finally {
+      executor.shutdown();
+      assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    assertThat(allowed).hasValue(3);
+    assertThat(rejected).hasValue(threads * 1_000 - 3);
+  }
+
+  @Test
+  void whenCustomerHasNoEmail_thenShouldPassWithoutLimiting() {
+    OrderRequest request = request(null);
+    for (int index = 0; index < 5; index++) {
+      assertThat(interceptor.intercept(request)).isSameAs(request);
+    }
+
+    assertThat(meterRegistry.get("order.ratelimit.buckets").gauge().value()).isZero();
+  }
+
+  private static OrderRequest request(String emailAddress) {
+    return OrderRequest.builder()
+        .customer(CustomerProfile.builder()
+            .title("Mr").fullName("Rate Limited Customer")
+            .emailAddress(emailAddress)
+            .memberTier(MembershipTier.BASIC)
+            .build())
+        .build();
+  }
+}
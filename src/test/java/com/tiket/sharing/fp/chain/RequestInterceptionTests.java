@@ -4,7 +4,6 @@ import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -12,12 +11,24 @@ import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
 
 import com.tiket.sharing.fp.chain.RequestInterceptor.InterceptorChain;
+import com.tiket.sharing.fp.chain.RequestInterceptor.SynchronousInterceptor;
+import com.tiket.sharing.fp.chain.RequestInterceptor.ValidatingInterceptor;
 import com.tiket.sharing.fp.model.CustomerProfile;
 import com.tiket.sharing.fp.model.MembershipTier;
 import com.tiket.sharing.fp.model.OrderDetails;
 import com.tiket.sharing.fp.model.OrderIdentifier;
 import com.tiket.sharing.fp.model.OrderRequest;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -94,7 +105,49 @@ class RequestInterceptionTests {
         .verify(Duration.ofSeconds(5));
 
     verify(orderTracker, times(1)).duplicateOrder(any(OrderRequest.class));
-    verify(orderTracker, never()).activeCount(eq("mang.oleh@odading.com"));
+    verify(orderTracker, times(1)).activeCount(eq("mang.oleh@odading.com"));
+  }
+
+  @Test
+  void whenLaterValidatorFailedFirst_thenShouldFailInChainOrder() {
+    when(orderTracker.duplicateOrder(any(OrderRequest.class)))
+        .then(invocation -> Mono.delay(Duration.ofMillis(200))
+            .thenReturn(OrderIdentifier.by("1234", "ASDQWERTZYU")));
+
+    when(orderTracker.activeCount(eq("mang.oleh@odading.com")))
+        .then(invocation -> Mono.just(5));
+
+    StepVerifier.create(interceptorChain.evaluate(ORDER_REQUEST))
+        .expectSubscription().thenAwait()
+        .expectErrorSatisfies(error -> {
+          assertThat(RequestInterceptException.requestInterceptError(error)).isTrue();
+          assertThat(error.getMessage()).isEqualTo("Double order detected with id 1234 and hash ASDQWERTZYU");
+        })
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  void whenValidatorsSlow_thenShouldValidateConcurrently() {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    when(orderTracker.duplicateOrder(any(OrderRequest.class)))
+        .then(invocation -> Mono.delay(Duration.ofMillis(100))
+            .doOnSubscribe(subscription -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+            .doFinally(signal -> inFlight.decrementAndGet())
+            .then(Mono.empty()));
+
+    when(orderTracker.activeCount(eq("mang.oleh@odading.com")))
+        .then(invocation -> Mono.delay(Duration.ofMillis(100))
+            .doOnSubscribe(subscription -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+            .doFinally(signal -> inFlight.decrementAndGet())
+            .thenReturn(1));
+
+    StepVerifier.create(interceptorChain.evaluate(ORDER_REQUEST))
+        .expectNext(ORDER_REQUEST)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(maxInFlight).hasValue(2);
   }
 
   @Test
@@ -110,6 +163,128 @@ class RequestInterceptionTests {
         .verify(Duration.ofSeconds(5));
   }
 
+  @Test
+  void whenMixedInterceptors_thenShouldPreserveOrdering() {
+    List<String> trace = new CopyOnWriteArrayList<>();
+    List<RequestInterceptor> interceptors = new ArrayList<>();
+    for (int index = 0; index < 50; index++) {
+      String name = String.valueOf(index);
+      if (index % 3 == 0) {
+        interceptors.add((SynchronousInterceptor) request -> {
+          trace.add(name);
+          return request;
+        });
+      }
+      else if (index == 25) {
+        interceptors.add((request, chain) -> chain.evaluate(request)
+            .doOnSubscribe(subscription -> trace.add(name))
+            .then(Mono.empty()));
+      }
+      else {
+        interceptors.add((request, chain) -> Mono.fromRunnable(() -> trace.add(name))
+            .then(chain.evaluate(request))
+            .doOnNext(intercepted -> trace.add("~" + name)));
+      }
+    }
+
+    Mono<OrderRequest> evaluation = InterceptorChain.of(interceptors).evaluate(ORDER_REQUEST);
+    assertThat(trace).isEmpty();
+
+    StepVerifier.create(evaluation)
+        .expectNext(ORDER_REQUEST)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    List<String> expected = new ArrayList<>();
+    for (int index = 0; index < 50; index++) {
+      expected.add(String.valueOf(index));
+    }
+    for (int index = 49; index >= 0; index--) {
+      if (index % 3 != 0 && index != 25) {
+        expected.add("~" + index);
+      }
+    }
+    assertThat(trace).containsExactlyElementsOf(expected);
+  }
+
+  @Test
+  void whenSynchronousInterceptorRejected_thenShouldStopChain() {
+    List<String> trace = new CopyOnWriteArrayList<>();
+    InterceptorChain chain = InterceptorChain.of(Arrays.asList(
+        (SynchronousInterceptor) request -> {
+          trace.add("first");
+          return request;
+        },
+        (SynchronousInterceptor) request -> {
+          throw new RequestInterceptException(request, "Rejected", null);
+        },
+        (request, next) -> {
+          trace.add("last");
+          return next.evaluate(request);
+        }));
+
+    StepVerifier.create(chain.evaluate(ORDER_REQUEST))
+        .expectErrorSatisfies(error -> assertThat(error).hasMessage("Rejected"))
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(trace).containsExactly("first");
+  }
+
+  @Test
+  void whenChainInstrumented_thenShouldRecordOwnAndTotalLatency() {
+    Map<String, RequestInterceptor> interceptors = new LinkedHashMap<>();
+    interceptors.put("slow", (request, chain) -> Mono.delay(Duration.ofMillis(100)).then(chain.evaluate(request)));
+    interceptors.put("downstream", (request, chain) -> Mono.delay(Duration.ofMillis(200)).then(chain.evaluate(request)));
+    interceptors.put("rejecting", (SynchronousInterceptor) request -> {
+      throw new RequestInterceptException(request, "Rejected", null);
+    });
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    StepVerifier.create(InterceptorChain.of(interceptors, meterRegistry).evaluate(ORDER_REQUEST))
+        .expectErrorMessage("Rejected")
+        .verify(Duration.ofSeconds(5));
+
+    Timer own = meterRegistry.get("order.interceptor.latency").tags("interceptor", "slow", "scope", "own").timer();
+    Timer total = meterRegistry.get("order.interceptor.latency").tags("interceptor", "slow", "scope", "total").timer();
+    assertThat(own.totalTime(TimeUnit.MILLISECONDS)).isBetween(100d, 250d);
+    assertThat(total.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(300d);
+    assertThat(meterRegistry.get("order.interceptor.outcome").tags("interceptor", "slow", "outcome", "pass")
+        .counter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("order.interceptor.outcome").tags("interceptor", "rejecting", "outcome", "reject")
+        .counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void whenInstrumentedEvaluationCancelled_thenShouldRecordCancelOutcome() {
+    Map<String, RequestInterceptor> interceptors = new LinkedHashMap<>();
+    interceptors.put("rejecting", (ValidatingInterceptor) request -> Mono.delay(Duration.ofMillis(50))
+        .then(Mono.error(new RequestInterceptException(request, "Rejected", null))));
+    interceptors.put("hanging", (ValidatingInterceptor) request -> Mono.never());
+    interceptors.put("pending", (request, chain) -> Mono.never());
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    InterceptorChain chain = InterceptorChain.of(interceptors, meterRegistry);
+    StepVerifier.create(chain.evaluate(ORDER_REQUEST))
+        .expectErrorMessage("Rejected")
+        .verify(Duration.ofSeconds(5));
+
+    interceptors.remove("rejecting");
+    interceptors.remove("hanging");
+    StepVerifier.create(InterceptorChain.of(interceptors, meterRegistry).evaluate(ORDER_REQUEST))
+        .expectSubscription()
+        .thenCancel()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(meterRegistry.get("order.interceptor.outcome").tags("interceptor", "rejecting", "outcome", "reject")
+        .counter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("order.interceptor.outcome").tags("interceptor", "hanging", "outcome", "cancel")
+        .counter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("order.interceptor.outcome").tags("interceptor", "pending", "outcome", "cancel")
+        .counter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("order.interceptor.outcome").tags("interceptor", "pending", "outcome", "pass")
+        .counter().count()).isZero();
+  }
+
   @AfterEach
   void tearDown() {
     reset(orderTracker);
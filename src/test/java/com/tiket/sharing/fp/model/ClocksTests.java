@@ -0,0 +1,60 @@
+package com.tiket.sharing.fp.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tiket.sharing.fp.model.Clocks.TickingClock;
+import com.tiket.sharing.fp.model.Clocks.VirtualClock;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see Clocks
+ */
+class ClocksTests {
+  private static final Instant START = Instant.parse("2020-10-01T00:00:00Z");
+
+  @Test
+  void whenAdvanceVirtualClock_thenEarningExpiryShouldFollow() {
+    VirtualClock clock = Clocks.virtual(START, ZoneOffset.UTC);
+
+    assertThat(LoyaltyEarning.create(10, Duration.ofDays(100), clock).getExpiryTime())
+        .isEqualTo(LocalDateTime.of(2021, 1, 9, 0, 0));
+    assertThat(LoyaltyEarning.create(10, Duration.ofDays(100), clock.advance(Duration.ofDays(1))).getExpiryTime())
+        .isEqualTo(LocalDateTime.of(2021, 1, 10, 0, 0));
+  }
+
+  @Test
+  void whenAnchorClock_thenEarningExpiryShouldNotMove() {
+    VirtualClock source = Clocks.virtual(START, ZoneOffset.UTC);
+    Clock anchor = Clocks.anchored(source);
+    source.advance(Duration.ofDays(1));
+
+    assertThat(LoyaltyEarning.create(10, Duration.ZERO, anchor).getExpiryTime())
+        .isEqualTo(LocalDateTime.of(2020, 10, 1, 0, 0));
+  }
+
+  @Test
+  void whenTickingClockTicks_thenShouldFollowSource() {
+    VirtualClock source = Clocks.virtual(START, ZoneOffset.UTC);
+    try (TickingClock clock = Clocks.ticking(source, Duration.ofMillis(5))) {
+      assertThat(clock.instant()).isEqualTo(START);
+
+      source.advance(Duration.ofSeconds(1));
+      StepVerifier
+          .create(Flux.interval(Duration.ofMillis(5))
+              .map(tick -> clock.instant())
+              .filter(START.plusSeconds(1)::equals)
+              .next())
+          .expectNext(START.plusSeconds(1))
+          .expectComplete()
+          .verify(Duration.ofSeconds(3));
+    }
+  }
+}
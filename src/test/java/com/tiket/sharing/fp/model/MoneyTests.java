@@ -0,0 +1,68 @@
+package com.tiket.sharing.fp.model;
+
+import static java.math.RoundingMode.DOWN;
+import static java.math.RoundingMode.HALF_EVEN;
+import static java.math.RoundingMode.HALF_UP;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.util.Currency;
+import org.junit.jupiter.api.Test;
+
+/**
+ * @author zakyalvan
+ * @see Money
+ */
+class MoneyTests {
+  private static final Currency IDR = Money.DEFAULT_CURRENCY;
+  private static final Currency USD = Currency.getInstance("USD");
+
+  @Test
+  void whenParseAmount_thenShouldKeepMinorUnits() {
+    assertThat(Money.parse("10.5", IDR, HALF_EVEN).getMinorUnits()).isEqualTo(1050);
+    assertThat(Money.parse("-3", IDR, HALF_EVEN).getMinorUnits()).isEqualTo(-300);
+    assertThat(Money.parse("0.125", USD, HALF_EVEN).getMinorUnits()).isEqualTo(12);
+    assertThat(Money.parse("0.125", USD, HALF_UP).getMinorUnits()).isEqualTo(13);
+    assertThat(Money.parse("1e2", USD, HALF_EVEN).getMinorUnits()).isEqualTo(10_000);
+  }
+
+  @Test
+  void whenCalculate_thenShouldBeExact() {
+    Money price = Money.ofMajor(10_000, IDR);
+    Money fee = Money.parse("2500.50", IDR, HALF_EVEN);
+
+    assertThat(price.plus(fee)).isEqualTo(Money.ofMinor(1_250_050, IDR));
+    assertThat(price.minus(fee).toBigDecimal()).isEqualByComparingTo(new BigDecimal("7499.50"));
+    assertThat(fee.multiply(1, 3, HALF_EVEN).getMinorUnits()).isEqualTo(83_350);
+    assertThat(fee.majorUnits(DOWN)).isEqualTo(2_500);
+    assertThat(Money.roundedDivide(-5, 2, HALF_EVEN)).isEqualTo(-2);
+    assertThat(Money.roundedDivide(-5, 2, HALF_UP)).isEqualTo(-3);
+
+    assertThatThrownBy(() -> price.plus(Money.ofMajor(1, USD))).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> Money.ofMinor(Long.MAX_VALUE, IDR).plus(Money.ofMinor(1, IDR)))
+        .isInstanceOf(ArithmeticException.class);
+  }
+
+  @Test
+  void whenSerializeAndDeserialize_thenShouldRoundTrip() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    Money money = Money.parse("10.25", USD, HALF_EVEN);
+
+    String json = objectMapper.writeValueAsString(money);
+    assertThat(json).isEqualTo("{\"amount\":10.25,\"currency\":\"USD\"}");
+    assertThat(objectMapper.readValue(json, Money.class)).isEqualTo(money);
+    assertThat(objectMapper.readValue("10", Money.class)).isEqualTo(Money.ofMajor(10, IDR));
+    assertThat(objectMapper.readValue("\"10.5\"", Money.class)).isEqualTo(Money.ofMinor(1050, IDR));
+  }
+
+  @Test
+  void whenSerializeDefaultCurrency_thenShouldWritePlainNumber() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    assertThat(objectMapper.writeValueAsString(Money.parse("10000", IDR, HALF_EVEN))).isEqualTo("10000");
+    assertThat(objectMapper.writeValueAsString(Money.parse("2500.50", IDR, HALF_EVEN))).isEqualTo("2500.5");
+    assertThat(objectMapper.readValue("2500.5", Money.class)).isEqualTo(Money.ofMinor(250_050, IDR));
+  }
+}
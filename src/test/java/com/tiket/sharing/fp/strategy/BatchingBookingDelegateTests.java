@@ -0,0 +1,244 @@
+package com.tiket.sharing.fp.strategy;
+
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.HttpResponse.response;
+import static org.mockserver.model.JsonBody.json;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
+
+import com.tiket.sharing.fp.model.BookingDetails;
+import com.tiket.sharing.fp.model.BookingParameter;
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.PassengerProfile;
+import com.tiket.sharing.fp.model.Schedule;
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import com.tiket.sharing.fp.strategy.BatchingBookingDelegate.BatchBookingClient;
+import com.tiket.sharing.fp.strategy.BatchingBookingDelegate.BatchQueueFullException;
+import com.tiket.sharing.fp.strategy.SupplierBookingAdapter.RailinkBookingDelegate;
+import com.tiket.sharing.fp.strategy.SupplierBookingAdapter.SupplierBookingDelegate;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockserver.client.MockServerClient;
+import org.mockserver.junit.jupiter.MockServerSettings;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+import org.mockserver.model.RequestDefinition;
+import org.mockserver.verify.VerificationTimes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see BatchingBookingDelegate
+ */
+@SpringBootTest(classes = BookingTestConfiguration.class, webEnvironment = NONE)
+@MockServerSettings(ports = 7890)
+class BatchingBookingDelegateTests {
+  @Autowired
+  private WebClient.Builder webClients;
+
+  private BatchingBookingDelegate batchingDelegate;
+
+  @BeforeEach
+  void setUp() {
+    WebClient webClient = webClients.clone().baseUrl("http://localhost:7890").build();
+    batchingDelegate = new BatchingBookingDelegate(new RailinkBookingDelegate(webClient),
+        BatchBookingClient.webClient(webClient, "/railink/bookings/batch"),
+        BatchingBookingDelegate.Settings.builder().maxSize(3).maxLinger(Duration.ofMillis(500)).build());
+  }
+
+  @Test
+  void whenConcurrentBookings_thenShouldSentInSingleBatch(MockServerClient mockServer) {
+    mockServer.when(BATCH_REQUEST).respond(BATCH_RESPONSE);
+
+    StepVerifier
+        .create(Mono.zip(batchingDelegate.create(parameter("Customer A")),
+            batchingDelegate.create(parameter("Customer B")),
+            batchingDelegate.create(parameter("Customer C"))))
+        .expectSubscription().thenAwait()
+        .assertNext(bookings -> {
+          assertThat(bookings.getT1().getCustomer().getFullName()).isEqualTo("Customer A");
+          assertThat(bookings.getT2().getCustomer().getFullName()).isEqualTo("Customer B");
+          assertThat(bookings.getT3().getCustomer().getFullName()).isEqualTo("Customer C");
+        })
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    mockServer.verify(BATCH_REQUEST, VerificationTimes.once());
+  }
+
+  @Test
+  void whenBatchCarriesIdempotencyKeys_thenShouldSendEveryKeyInBatchOrder(MockServerClient mockServer) {
+    mockServer.when(BATCH_REQUEST).respond(BATCH_RESPONSE);
+
+    StepVerifier
+        .create(Mono.zip(
+            batchingDelegate.create(parameter("Customer A"))
+                .subscriberContext(IdempotencyKeys.ensure(parameter("Customer A"))),
+            batchingDelegate.create(parameter("Customer B"))
+                .subscriberContext(IdempotencyKeys.ensure(parameter("Customer B"))),
+            batchingDelegate.create(parameter("Customer C"))
+                .subscriberContext(IdempotencyKeys.ensure(parameter("Customer C")))))
+        .expectNextCount(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    RequestDefinition[] requests = mockServer.retrieveRecordedRequests(BATCH_REQUEST);
+    assertThat(requests).hasSize(1);
+    assertThat(((HttpRequest) requests[0]).getHeader(IdempotencyKeys.HEADER_NAME)).hasSize(3).doesNotHaveDuplicates();
+  }
+
+  @Test
+  void whenBatchClientThrows_thenShouldFailBatchAndKeepBatching() {
+    AtomicInteger batches = new AtomicInteger();
+    BatchingBookingDelegate delegate = new BatchingBookingDelegate(
+        single(parameter -> Mono.just(BookingDetails.builder().customer(parameter.getCustomer()).build())),
+        parameters -> {
+          if (batches.getAndIncrement() == 0) {
+            throw new IllegalStateException("Batch client failure");
+          }
+          return Mono.just(parameters.stream()
+              .map(parameter -> BookingDetails.builder().customer(parameter.getCustomer()).build())
+              .collect(toList()));
+        },
+        BatchingBookingDelegate.Settings.builder().maxSize(2).maxLinger(Duration.ofSeconds(1)).build());
+
+    try {
+      StepVerifier.create(Mono.zip(delegate.create(parameter("Customer A")), delegate.create(parameter("Customer B"))))
+          .expectError(IllegalStateException.class)
+          .verify(Duration.ofSeconds(5));
+
+      StepVerifier.create(Mono.zip(delegate.create(parameter("Customer C")), delegate.create(parameter("Customer D"))))
+          .assertNext(bookings -> {
+            assertThat(bookings.getT1().getCustomer().getFullName()).isEqualTo("Customer C");
+            assertThat(bookings.getT2().getCustomer().getFullName()).isEqualTo("Customer D");
+          })
+          .expectComplete()
+          .verify(Duration.ofSeconds(5));
+    }
+    finally {
+      delegate.dispose();
+    }
+  }
+
+  @Test
+  void whenLingerFlushesWhileDispatchSlow_thenShouldKeepBatching() {
+    BatchingBookingDelegate delegate = new BatchingBookingDelegate(
+        single(parameter -> Mono.delay(Duration.ofMillis(300))
+            .thenReturn(BookingDetails.builder().customer(parameter.getCustomer()).build())),
+        parameters -> Mono.delay(Duration.ofMillis(300))
+            .thenReturn(parameters.stream()
+                .map(parameter -> BookingDetails.builder().customer(parameter.getCustomer()).build())
+                .collect(toList())),
+        BatchingBookingDelegate.Settings.builder().concurrency(1).build());
+
+    try {
+      StepVerifier
+          .create(Flux.range(0, 6).delayUntil(index -> Mono.delay(Duration.ofMillis(20)))
+              .flatMap(index -> delegate.create(parameter("Customer " + index))))
+          .expectNextCount(6)
+          .expectComplete()
+          .verify(Duration.ofSeconds(5));
+
+      StepVerifier.create(delegate.create(parameter("Customer G")))
+          .expectNextCount(1)
+          .expectComplete()
+          .verify(Duration.ofSeconds(5));
+    }
+    finally {
+      delegate.dispose();
+    }
+  }
+
+  @Test
+  void whenPendingBookingsFull_thenShouldRejectBooking() {
+    BatchingBookingDelegate delegate = new BatchingBookingDelegate(single(parameter -> Mono.never()),
+        parameters -> Mono.never(),
+        BatchingBookingDelegate.Settings.builder().maxSize(1).maxPending(1).build());
+
+    try {
+      StepVerifier.create(delegate.create(parameter("Customer A")))
+          .expectSubscription()
+          .then(() -> StepVerifier.create(delegate.create(parameter("Customer B")))
+              .expectError(BatchQueueFullException.class)
+              .verify(Duration.ofSeconds(1)))
+          .thenCancel()
+          .verify(Duration.ofSeconds(1));
+
+      StepVerifier.create(delegate.create(parameter("Customer C")))
+          .expectSubscription()
+          .expectNoEvent(Duration.ofMillis(50))
+          .thenCancel()
+          .verify(Duration.ofSeconds(1));
+    }
+    finally {
+      delegate.dispose();
+    }
+  }
+
+  @AfterEach
+  void tearDown(MockServerClient mockServer) {
+    batchingDelegate.dispose();
+    mockServer.reset();
+  }
+
+  private static SupplierBookingDelegate single(Function<BookingParameter, Mono<BookingDetails>> booking) {
+    return new SupplierBookingDelegate() {
+      @Override
+      public Boolean supports(BookingParameter parameter) {
+        return true;
+      }
+
+      @Override
+      public Mono<BookingDetails> create(BookingParameter parameter) {
+        return booking.apply(parameter);
+      }
+    };
+  }
+
+  private static BookingParameter parameter(String customerName) {
+    return BookingParameter.builder()
+        .customer(CustomerProfile.builder()
+            .title("Mr").fullName(customerName).emailAddress("zaky.alvan@tiket.com")
+            .phoneNumber("6281320144088")
+            .build())
+        .passengers(singletonList(PassengerProfile.builder()
+            .title("Mr").fullName("Penumpang Gelap Kulitnya")
+            .build()))
+        .schedule(Schedule.builder()
+            .supplier(SupplierQualifier.RAILINK)
+            .origin("SDB").destination("BST")
+            .build())
+        .build();
+  }
+
+  private static final HttpRequest BATCH_REQUEST = request("/railink/bookings/batch")
+      .withHeader("Content-Type", "application/json")
+      .withHeader("Accept", "application/json");
+
+  private static final HttpResponse BATCH_RESPONSE = response()
+      .withHeader("Content-Type", "application/json")
+      .withBody(json("[ {\n"
+          + "  \"supplier\" : \"RAILINK\",\n"
+          + "  \"customer\" : { \"title\" : \"Mr\", \"fullName\" : \"Customer A\" },\n"
+          + "  \"state\" : \"BOOKED\"\n"
+          + "}, {\n"
+          + "  \"supplier\" : \"RAILINK\",\n"
+          + "  \"customer\" : { \"title\" : \"Mr\", \"fullName\" : \"Customer B\" },\n"
+          + "  \"state\" : \"BOOKED\"\n"
+          + "}, {\n"
+          + "  \"supplier\" : \"RAILINK\",\n"
+          + "  \"customer\" : { \"title\" : \"Mr\", \"fullName\" : \"Customer C\" },\n"
+          + "  \"state\" : \"BOOKED\"\n"
+          + "} ]"));
+}
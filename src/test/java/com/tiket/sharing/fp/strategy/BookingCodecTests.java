@@ -0,0 +1,149 @@
+package com.tiket.sharing.fp.strategy;
+
+import static java.math.RoundingMode.HALF_EVEN;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.tiket.sharing.fp.model.BookPricing;
+import com.tiket.sharing.fp.model.BookingDetails;
+import com.tiket.sharing.fp.model.BookingParameter;
+import com.tiket.sharing.fp.model.BookingState;
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.MembershipTier;
+import com.tiket.sharing.fp.model.Money;
+import com.tiket.sharing.fp.model.PassengerProfile;
+import com.tiket.sharing.fp.model.Schedule;
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see BookingParameterEncoder
+ * @see BookingDetailsDecoder
+ */
+class BookingCodecTests {
+  private static final ResolvableType BOOKING_LIST = ResolvableType.forClassWithGenerics(List.class, BookingDetails.class);
+
+  private final ObjectMapper objectMapper = new ObjectMapper()
+      .registerModule(new JavaTimeModule())
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+  private final BookingParameterEncoder encoder = new BookingParameterEncoder(objectMapper.getFactory());
+  private final BookingDetailsDecoder decoder = new BookingDetailsDecoder(objectMapper.getFactory());
+
+  @Test
+  void whenEncodeParameter_thenShouldWriteSameJsonAsJackson() throws Exception {
+    DataBuffer buffer = encoder.encodeValue(PARAMETER, bufferFactory,
+        ResolvableType.forClass(BookingParameter.class), MediaType.APPLICATION_JSON, Collections.emptyMap());
+    String json = buffer.toString(UTF_8);
+    DataBufferUtils.release(buffer);
+
+    JsonNode expected = objectMapper.valueToTree(PARAMETER);
+    assertThat(objectMapper.readTree(json)).isEqualTo(expected);
+  }
+
+  @Test
+  void whenDecodeJacksonWrittenDetails_thenShouldRoundTrip() throws Exception {
+    StepVerifier
+        .create(decoder.decodeToMono(body(objectMapper.writeValueAsString(DETAILS)),
+            ResolvableType.forClass(BookingDetails.class), MediaType.APPLICATION_JSON, Collections.emptyMap()))
+        .expectNext(DETAILS)
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+  }
+
+  @Test
+  void whenDecodeDetailsList_thenShouldRoundTrip() throws Exception {
+    List<BookingDetails> bookings = Arrays.asList(DETAILS, BookingDetails.builder()
+        .supplier(SupplierQualifier.RAILINK)
+        .customer(CUSTOMER)
+        .state(BookingState.CANCELLED)
+        .build());
+    assertThat(decoder.canDecode(BOOKING_LIST, MediaType.APPLICATION_JSON)).isTrue();
+
+    StepVerifier
+        .create(decoder.decodeToMono(body(objectMapper.writeValueAsString(bookings)), BOOKING_LIST,
+            MediaType.APPLICATION_JSON, Collections.emptyMap()))
+        .expectNext(bookings)
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+  }
+
+  @Test
+  void whenDecodeEmptyBody_thenShouldBeEmpty() {
+    StepVerifier
+        .create(decoder.decodeToMono(body(""), ResolvableType.forClass(BookingDetails.class),
+            MediaType.APPLICATION_JSON, Collections.emptyMap()))
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+    StepVerifier
+        .create(decoder.decodeToMono(body(""), BOOKING_LIST, MediaType.APPLICATION_JSON, Collections.emptyMap()))
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+    StepVerifier
+        .create(decoder.decode(body(""), ResolvableType.forClass(BookingDetails.class),
+            MediaType.APPLICATION_JSON, Collections.emptyMap()))
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+  }
+
+  private Flux<DataBuffer> body(String json) {
+    return Mono.<DataBuffer>fromCallable(() -> bufferFactory.wrap(json.getBytes(UTF_8))).flux();
+  }
+
+  private static final CustomerProfile CUSTOMER = CustomerProfile.builder()
+      .title("Mr").fullName("Mang Oleh")
+      .emailAddress("mang.oleh@odading.com").phoneNumber("6281320123123")
+      .memberTier(MembershipTier.GOLD)
+      .build();
+
+  private static final Schedule SCHEDULE = Schedule.builder()
+      .supplier(SupplierQualifier.RAILINK)
+      .origin("SDB").destination("BST")
+      .departDate(LocalDate.of(2030, 1, 2)).departTime(LocalTime.of(10, 15))
+      .arriveDate(LocalDate.of(2030, 1, 2)).arriveTime(LocalTime.of(11, 0, 30))
+      .trainNumber("KA-12").wagonClass("EKO")
+      .build();
+
+  private static final BookingParameter PARAMETER = BookingParameter.builder()
+      .customer(CUSTOMER)
+      .passengers(Collections.singletonList(PassengerProfile.builder()
+          .title("Mr").fullName("Penumpang Gelap Kulitnya")
+          .build()))
+      .schedule(SCHEDULE)
+      .build();
+
+  private static final BookingDetails DETAILS = BookingDetails.builder()
+      .supplier(SupplierQualifier.RAILINK)
+      .customer(CUSTOMER)
+      .passengers(PARAMETER.getPassengers())
+      .schedule(SCHEDULE)
+      .pricing(BookPricing.builder()
+          .basePrice(Money.parse("50000", Money.DEFAULT_CURRENCY, HALF_EVEN))
+          .convenienceFee(Money.parse("2500.50", Money.DEFAULT_CURRENCY, HALF_EVEN))
+          .totalAmount(Money.parse("52500.50", Money.DEFAULT_CURRENCY, HALF_EVEN))
+          .build())
+      .state(BookingState.BOOKED)
+      .createdTime(LocalDateTime.of(2030, 1, 1, 8, 0))
+      .expiryTime(LocalDateTime.of(2030, 1, 1, 8, 30, 15))
+      .build();
+}
@@ -0,0 +1,126 @@
+package com.tiket.sharing.fp.strategy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tiket.sharing.fp.model.BookingDetails;
+import com.tiket.sharing.fp.model.BookingParameter;
+import com.tiket.sharing.fp.model.Schedule;
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import com.tiket.sharing.fp.strategy.BulkheadBookingAdapter.SupplierSaturatedException;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see BulkheadBookingAdapter
+ */
+class BulkheadBookingAdapterTests {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AtomicReference<Mono<BookingDetails>> booking = new AtomicReference<>(Mono.just(BOOKING));
+
+  @Test
+  void whenFastUtilizedCalls_thenShouldGrowLimit() {
+    BulkheadBookingAdapter bulkhead = bulkhead(BulkheadBookingAdapter.Settings.builder().initialLimit(2).build());
+    booking.set(Mono.delay(Duration.ofMillis(5)).thenReturn(BOOKING));
+
+    StepVerifier.create(Flux.range(0, 20).concatMap(round -> Flux.merge(create(bulkhead), create(bulkhead))))
+        .expectNextCount(40)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(bulkhead.limit(SupplierQualifier.RAILINK)).isGreaterThan(2);
+  }
+
+  @Test
+  void whenBurstOfSlowCalls_thenShouldBackOffOnce() {
+    BulkheadBookingAdapter bulkhead = bulkhead(BulkheadBookingAdapter.Settings.builder()
+        .initialLimit(20).backoffRatio(.5).latencyThreshold(Duration.ofMillis(20))
+        .build());
+    booking.set(Mono.delay(Duration.ofMillis(100)).thenReturn(BOOKING));
+
+    StepVerifier.create(Flux.range(0, 10).flatMap(index -> create(bulkhead)))
+        .expectNextCount(10)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+    assertThat(bulkhead.limit(SupplierQualifier.RAILINK)).isEqualTo(10);
+
+    StepVerifier.create(create(bulkhead))
+        .expectNextCount(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+    assertThat(bulkhead.limit(SupplierQualifier.RAILINK)).isEqualTo(5);
+  }
+
+  @Test
+  void whenLimitReached_thenShouldRejectImmediately() {
+    BulkheadBookingAdapter bulkhead = bulkhead(BulkheadBookingAdapter.Settings.builder()
+        .initialLimit(1).maxLimit(1)
+        .build());
+    booking.set(Mono.never());
+
+    StepVerifier.create(create(bulkhead))
+        .expectSubscription()
+        .then(() -> StepVerifier.create(create(bulkhead))
+            .expectErrorSatisfies(error -> {
+              assertThat(SupplierSaturatedException.saturatedError(error)).isTrue();
+              assertThat(((SupplierSaturatedException) error).getLimit()).isEqualTo(1);
+            })
+            .verify(Duration.ofSeconds(1)))
+        .thenCancel()
+        .verify(Duration.ofSeconds(1));
+
+    assertThat(bulkhead.inFlight(SupplierQualifier.RAILINK)).isZero();
+    assertThat(meterRegistry.get("booking.bulkhead.rejected").tag("supplier", "railink").counter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void whenCancelledAfterResult_thenShouldReleaseOnce() {
+    BulkheadBookingAdapter bulkhead = bulkhead(BulkheadBookingAdapter.Settings.builder().build());
+
+    for (int index = 0; index < 5; index++) {
+      StepVerifier.create(bulkhead.create(PARAMETER).flux().next())
+          .expectNextCount(1)
+          .expectComplete()
+          .verify(Duration.ofSeconds(1));
+    }
+
+    assertThat(bulkhead.inFlight(SupplierQualifier.RAILINK)).isZero();
+  }
+
+  @Test
+  void whenCreatedWithoutSettings_thenShouldNotShareMeters() {
+    int registered = Metrics.globalRegistry.find("booking.bulkhead.limit").tag("supplier", "railink").gauges().size();
+
+    new BulkheadBookingAdapter(parameter -> Mono.never());
+    new BulkheadBookingAdapter(parameter -> Mono.never());
+
+    assertThat(Metrics.globalRegistry.find("booking.bulkhead.limit").tag("supplier", "railink").gauges())
+        .hasSize(registered + 2);
+  }
+
+  private BulkheadBookingAdapter bulkhead(BulkheadBookingAdapter.Settings settings) {
+    return new BulkheadBookingAdapter(parameter -> booking.get(), settings, meterRegistry);
+  }
+
+  private static Mono<BookingDetails> create(BulkheadBookingAdapter bulkhead) {
+    return bulkhead.create(PARAMETER);
+  }
+
+  private static final BookingDetails BOOKING = BookingDetails.builder()
+      .supplier(SupplierQualifier.RAILINK)
+      .build();
+
+  private static final BookingParameter PARAMETER = BookingParameter.builder()
+      .schedule(Schedule.builder()
+          .supplier(SupplierQualifier.RAILINK)
+          .origin("SDB").destination("BST")
+          .build())
+      .build();
+}
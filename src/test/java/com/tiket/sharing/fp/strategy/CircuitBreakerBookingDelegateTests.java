@@ -0,0 +1,159 @@
+package com.tiket.sharing.fp.strategy;
+
+import static com.tiket.sharing.fp.strategy.CircuitBreakerBookingDelegate.CircuitOpenException.circuitOpenError;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tiket.sharing.fp.model.BookingDetails;
+import com.tiket.sharing.fp.model.BookingParameter;
+import com.tiket.sharing.fp.model.BookingState;
+import com.tiket.sharing.fp.model.Clocks;
+import com.tiket.sharing.fp.model.Clocks.VirtualClock;
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.PassengerProfile;
+import com.tiket.sharing.fp.model.Schedule;
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import com.tiket.sharing.fp.strategy.CircuitBreakerBookingDelegate.Phase;
+import com.tiket.sharing.fp.strategy.SupplierBookingAdapter.SupplierBookingDelegate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see CircuitBreakerBookingDelegate
+ */
+class CircuitBreakerBookingDelegateTests {
+  private final AtomicBoolean supplierDown = new AtomicBoolean();
+  private final AtomicBoolean supplierHung = new AtomicBoolean();
+  private final AtomicInteger supplierCalls = new AtomicInteger();
+  private final VirtualClock clock = Clocks.virtual(Instant.parse("2020-10-01T00:00:00Z"), ZoneOffset.UTC);
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private SupplierBookingDelegate supplier;
+  private CircuitBreakerBookingDelegate circuitBreaker;
+
+  @BeforeEach
+  void setUp() {
+    supplier = new SupplierBookingDelegate() {
+      @Override
+      public Boolean supports(BookingParameter parameter) {
+        return true;
+      }
+
+      @Override
+      public Mono<BookingDetails> create(BookingParameter parameter) {
+        return Mono.defer(() -> {
+          supplierCalls.incrementAndGet();
+          if (supplierHung.get()) {
+            return Mono.never();
+          }
+          return supplierDown.get()
+              ? Mono.error(new IllegalStateException("Supplier down"))
+              : Mono.just(BookingDetails.builder().supplier(SupplierQualifier.KAI).state(BookingState.BOOKED).build());
+        });
+      }
+    };
+
+    circuitBreaker = new CircuitBreakerBookingDelegate(supplier, CircuitBreakerBookingDelegate.Settings.builder()
+        .windowSize(4).minimumCalls(4).failureRateThreshold(50)
+        .waitInOpenState(Duration.ofMillis(200)).halfOpenPermits(2)
+        .clock(clock)
+        .build(), meterRegistry);
+  }
+
+  @Test
+  void whenFailureRateExceeded_thenShouldShortCircuit() {
+    supplierDown.set(true);
+    for (int i = 0; i < 4; i++) {
+      StepVerifier.create(circuitBreaker.create(PARAMETER))
+          .expectError(IllegalStateException.class)
+          .verify(Duration.ofSeconds(1));
+    }
+    assertThat(circuitBreaker.getPhase()).isEqualTo(Phase.OPEN);
+
+    StepVerifier.create(circuitBreaker.create(PARAMETER))
+        .expectErrorSatisfies(error -> assertThat(circuitOpenError(error)).isTrue())
+        .verify(Duration.ofSeconds(1));
+    assertThat(supplierCalls.get()).isEqualTo(4);
+  }
+
+  @Test
+  void whenProbesSucceedOnHalfOpen_thenShouldClose() {
+    supplierDown.set(true);
+    for (int i = 0; i < 4; i++) {
+      StepVerifier.create(circuitBreaker.create(PARAMETER))
+          .expectError(IllegalStateException.class)
+          .verify(Duration.ofSeconds(1));
+    }
+    assertThat(circuitBreaker.getPhase()).isEqualTo(Phase.OPEN);
+
+    supplierDown.set(false);
+    clock.advance(Duration.ofMillis(300));
+
+    for (int i = 0; i < 2; i++) {
+      StepVerifier.create(circuitBreaker.create(PARAMETER))
+          .assertNext(booking -> assertThat(booking.getState()).isEqualTo(BookingState.BOOKED))
+          .expectComplete()
+          .verify(Duration.ofSeconds(1));
+    }
+    assertThat(circuitBreaker.getPhase()).isEqualTo(Phase.CLOSED);
+  }
+
+  @Test
+  void whenProbeCancelledAfterResult_thenShouldNotGiveBackPermit() {
+    supplierDown.set(true);
+    for (int i = 0; i < 4; i++) {
+      StepVerifier.create(circuitBreaker.create(PARAMETER))
+          .expectError(IllegalStateException.class)
+          .verify(Duration.ofSeconds(1));
+    }
+    supplierDown.set(false);
+    clock.advance(Duration.ofMillis(300));
+
+    StepVerifier.create(circuitBreaker.create(PARAMETER).flux().next())
+        .expectNextCount(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+    assertThat(circuitBreaker.getPhase()).isEqualTo(Phase.HALF_OPEN);
+
+    supplierHung.set(true);
+    Disposable lastProbe = circuitBreaker.create(PARAMETER).subscribe();
+    StepVerifier.create(circuitBreaker.create(PARAMETER))
+        .expectErrorSatisfies(error -> assertThat(circuitOpenError(error)).isTrue())
+        .verify(Duration.ofSeconds(1));
+    lastProbe.dispose();
+    assertThat(supplierCalls.get()).isEqualTo(6);
+  }
+
+  @Test
+  void whenNamedDifferently_thenShouldRegisterMetersOfEachCircuit() {
+    new CircuitBreakerBookingDelegate(supplier,
+        CircuitBreakerBookingDelegate.Settings.builder().name("other").build(), meterRegistry);
+
+    assertThat(meterRegistry.get("booking.circuit.state").gauges()).hasSize(2);
+    assertThat(meterRegistry.get("booking.circuit.rejected").tag("circuit", "other").counter()).isNotNull();
+  }
+
+  private static final BookingParameter PARAMETER = BookingParameter.builder()
+      .customer(CustomerProfile.builder()
+          .title("Mr").fullName("Zaky Alvan").emailAddress("zaky.alvan@tiket.com")
+          .phoneNumber("6281320144088")
+          .build())
+      .passengers(singletonList(PassengerProfile.builder()
+          .title("Mr").fullName("Penumpang Gelap Kulitnya")
+          .build()))
+      .schedule(Schedule.builder()
+          .supplier(SupplierQualifier.KAI)
+          .origin("GMR").destination("BD")
+          .build())
+      .build();
+}
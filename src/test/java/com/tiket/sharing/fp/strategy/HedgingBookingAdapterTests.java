@@ -0,0 +1,159 @@
+package com.tiket.sharing.fp.strategy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tiket.sharing.fp.model.BookingDetails;
+import com.tiket.sharing.fp.model.BookingParameter;
+import com.tiket.sharing.fp.model.BookingState;
+import com.tiket.sharing.fp.model.Schedule;
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see HedgingBookingAdapter
+ */
+class HedgingBookingAdapterTests {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AtomicInteger attempts = new AtomicInteger();
+  private final Queue<Mono<BookingDetails>> responses = new ConcurrentLinkedQueue<>();
+  private final List<String> idempotencyKeys = new CopyOnWriteArrayList<>();
+
+  private final HedgingBookingAdapter hedgingAdapter = new HedgingBookingAdapter(parameter -> Mono
+      .subscriberContext()
+      .flatMap(context -> {
+        attempts.incrementAndGet();
+        IdempotencyKeys.from(context).ifPresent(idempotencyKeys::add);
+        return responses.poll();
+      }), HedgingBookingAdapter.Settings.builder()
+      .initialDelay(Duration.ofMillis(50)).minDelay(Duration.ofMillis(10))
+      .build(), meterRegistry);
+
+  @Test
+  void whenPrimarySlow_thenShouldHedgeWithSameKeyAndCancelLoser() throws Exception {
+    CountDownLatch primaryCancelled = new CountDownLatch(1);
+    responses.add(Mono.delay(Duration.ofSeconds(2)).thenReturn(booking(BookingState.BOOKED))
+        .doOnCancel(primaryCancelled::countDown));
+    responses.add(Mono.delay(Duration.ofMillis(10)).thenReturn(booking(BookingState.BOOKED)));
+
+    StepVerifier.create(hedgingAdapter.create(PARAMETER))
+        .expectNextCount(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+
+    assertThat(attempts).hasValue(2);
+    assertThat(primaryCancelled.await(1, TimeUnit.SECONDS)).isTrue();
+    assertThat(idempotencyKeys).hasSize(2).containsOnly(idempotencyKeys.get(0));
+    assertThat(meterRegistry.get("booking.hedge.fired").counter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("booking.hedge.won").counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void whenPrimaryFast_thenShouldNotHedge() {
+    responses.add(Mono.just(booking(BookingState.BOOKED)));
+
+    StepVerifier.create(hedgingAdapter.create(PARAMETER))
+        .expectNextCount(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+
+    StepVerifier.create(Mono.delay(Duration.ofMillis(100)))
+        .expectNextCount(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+    assertThat(attempts).hasValue(1);
+    assertThat(meterRegistry.get("booking.hedge.fired").counter().count()).isZero();
+  }
+
+  @Test
+  void whenPrimaryFailedWhileHedgeInFlight_thenShouldWaitForHedge() {
+    responses.add(Mono.delay(Duration.ofMillis(80)).then(Mono.error(new IllegalStateException("Primary failure"))));
+    responses.add(Mono.delay(Duration.ofMillis(100)).thenReturn(booking(BookingState.BOOKED)));
+
+    StepVerifier.create(hedgingAdapter.create(PARAMETER))
+        .assertNext(booking -> assertThat(booking.getState()).isEqualTo(BookingState.BOOKED))
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+
+    assertThat(attempts).hasValue(2);
+  }
+
+  @Test
+  void whenPrimaryFailedBeforeHedgingDelay_thenShouldFailWithoutHedge() {
+    responses.add(Mono.error(new IllegalStateException("Primary failure")));
+
+    StepVerifier.create(hedgingAdapter.create(PARAMETER))
+        .expectErrorMessage("Primary failure")
+        .verify(Duration.ofSeconds(1));
+
+    assertThat(attempts).hasValue(1);
+    assertThat(meterRegistry.get("booking.hedge.fired").counter().count()).isZero();
+  }
+
+  @Test
+  void whenWinnerCancelledAfterResult_thenShouldRecordLatencyOnce() {
+    HedgingBookingAdapter adapter = new HedgingBookingAdapter(parameter -> Mono.just(booking(BookingState.BOOKED)),
+        HedgingBookingAdapter.Settings.builder()
+            .initialDelay(Duration.ofMillis(50)).minDelay(Duration.ofMillis(10))
+            .recomputeInterval(2)
+            .build(), new SimpleMeterRegistry());
+
+    StepVerifier.create(adapter.create(PARAMETER))
+        .expectNextCount(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+    assertThat(adapter.delay(SupplierQualifier.RAILINK)).isEqualTo(Duration.ofMillis(50));
+
+    StepVerifier.create(adapter.create(PARAMETER))
+        .expectNextCount(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+    assertThat(adapter.delay(SupplierQualifier.RAILINK)).isNotEqualTo(Duration.ofMillis(50));
+  }
+
+  @Test
+  void whenBookingsShareContext_thenShouldNotShareKey() {
+    BookingParameter otherParameter = BookingParameter.builder()
+        .schedule(Schedule.builder()
+            .supplier(SupplierQualifier.RAILINK)
+            .origin("BST").destination("SDB")
+            .build())
+        .build();
+    responses.add(Mono.just(booking(BookingState.BOOKED)));
+    responses.add(Mono.just(booking(BookingState.BOOKED)));
+
+    StepVerifier
+        .create(hedgingAdapter.create(PARAMETER).then(hedgingAdapter.create(otherParameter))
+            .subscriberContext(IdempotencyKeys.ensure(PARAMETER)))
+        .expectNextCount(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+
+    assertThat(idempotencyKeys).hasSize(2).doesNotHaveDuplicates();
+  }
+
+  private static BookingDetails booking(BookingState state) {
+    return BookingDetails.builder()
+        .supplier(SupplierQualifier.RAILINK)
+        .state(state)
+        .build();
+  }
+
+  private static final BookingParameter PARAMETER = BookingParameter.builder()
+      .schedule(Schedule.builder()
+          .supplier(SupplierQualifier.RAILINK)
+          .origin("SDB").destination("BST")
+          .build())
+      .build();
+}
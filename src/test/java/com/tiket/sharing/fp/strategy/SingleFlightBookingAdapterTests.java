@@ -0,0 +1,120 @@
+package com.tiket.sharing.fp.strategy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tiket.sharing.fp.model.BookingDetails;
+import com.tiket.sharing.fp.model.BookingParameter;
+import com.tiket.sharing.fp.model.Schedule;
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see SingleFlightBookingAdapter
+ */
+class SingleFlightBookingAdapterTests {
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AtomicInteger supplierCalls = new AtomicInteger();
+  private final AtomicBoolean supplierCancelled = new AtomicBoolean();
+  private final AtomicReference<Mono<BookingDetails>> response = new AtomicReference<>();
+
+  private final SingleFlightBookingAdapter singleFlight = new SingleFlightBookingAdapter(parameter -> response.get()
+      .doOnSubscribe(subscription -> supplierCalls.incrementAndGet())
+      .doOnCancel(() -> supplierCancelled.set(true)), meterRegistry);
+
+  @Test
+  void whenConcurrentIdenticalBookings_thenShouldCallSupplierOnce() {
+    response.set(Mono.delay(Duration.ofMillis(100)).thenReturn(BOOKING));
+
+    StepVerifier.create(Mono.zip(singleFlight.create(PARAMETER), singleFlight.create(PARAMETER)))
+        .assertNext(bookings -> assertThat(bookings.getT1()).isSameAs(bookings.getT2()))
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+
+    assertThat(supplierCalls).hasValue(1);
+    assertThat(meterRegistry.get("booking.singleflight.collapsed").counter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("booking.singleflight.inflight").gauge().value()).isZero();
+  }
+
+  @Test
+  void whenFlightCompleted_thenShouldCallSupplierAgain() {
+    response.set(Mono.just(BOOKING));
+
+    for (int index = 0; index < 2; index++) {
+      StepVerifier.create(singleFlight.create(PARAMETER))
+          .expectNext(BOOKING)
+          .expectComplete()
+          .verify(Duration.ofSeconds(1));
+    }
+
+    assertThat(supplierCalls).hasValue(2);
+  }
+
+  @Test
+  void whenOnlySomeCallersCancelled_thenShouldKeepSupplierCall() {
+    response.set(Mono.delay(Duration.ofMillis(100)).thenReturn(BOOKING));
+
+    Disposable cancelled = singleFlight.create(PARAMETER).subscribe();
+    StepVerifier.create(singleFlight.create(PARAMETER))
+        .expectSubscription()
+        .then(cancelled::dispose)
+        .expectNext(BOOKING)
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+
+    assertThat(supplierCalls).hasValue(1);
+    assertThat(supplierCancelled).isFalse();
+  }
+
+  @Test
+  void whenAllCallersCancelled_thenShouldCancelSupplierCall() {
+    response.set(Mono.never());
+
+    Disposable first = singleFlight.create(PARAMETER).subscribe();
+    Disposable second = singleFlight.create(PARAMETER).subscribe();
+    first.dispose();
+    assertThat(supplierCancelled).isFalse();
+    second.dispose();
+
+    assertThat(supplierCancelled).isTrue();
+    assertThat(meterRegistry.get("booking.singleflight.inflight").gauge().value()).isZero();
+
+    singleFlight.create(PARAMETER).subscribe().dispose();
+    assertThat(supplierCalls).hasValue(2);
+  }
+
+  @Test
+  void whenSupplierFailed_thenShouldFailEveryCallerAndNotRemember() {
+    response.set(Mono.delay(Duration.ofMillis(100)).then(Mono.error(new IllegalStateException("Supplier failure"))));
+
+    StepVerifier.create(Mono.zipDelayError(singleFlight.create(PARAMETER), singleFlight.create(PARAMETER)))
+        .expectErrorSatisfies(error -> assertThat(error.getSuppressed()).hasSize(2))
+        .verify(Duration.ofSeconds(1));
+
+    response.set(Mono.just(BOOKING));
+    StepVerifier.create(singleFlight.create(PARAMETER))
+        .expectNext(BOOKING)
+        .expectComplete()
+        .verify(Duration.ofSeconds(1));
+    assertThat(supplierCalls).hasValue(2);
+  }
+
+  private static final BookingDetails BOOKING = BookingDetails.builder()
+      .supplier(SupplierQualifier.RAILINK)
+      .build();
+
+  private static final BookingParameter PARAMETER = BookingParameter.builder()
+      .schedule(Schedule.builder()
+          .supplier(SupplierQualifier.RAILINK)
+          .origin("SDB").destination("BST")
+          .build())
+      .build();
+}
@@ -58,6 +58,24 @@ class SupplierBookingAdapterTests {
         .verify(Duration.ofSeconds(5));
   }
 
+  @Test
+  void whenCreateTrainBookingWithValidParameters_thenShouldSuccess(MockServerClient mockServer) throws Exception {
+    mockServer.when(TRAIN_REQUEST).respond(TRAIN_RESPONSE);
+
+    BookingParameter parameter = BookingParameter.builder()
+        .customer(TESTING_CUSTOMER).passengers(TESTING_PASSENGERS).schedule(TRAIN_SCHEDULE)
+        .build();
+
+    StepVerifier.create(bookingAdapter.create(parameter))
+        .expectSubscription().thenAwait()
+        .assertNext(booking -> {
+          assertThat(booking.getState()).isEqualTo(BookingState.BOOKED);
+          assertThat(booking.getSupplier()).isEqualTo(SupplierQualifier.KAI);
+        })
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+  }
+
   @AfterEach
   void tearDown(MockServerClient mockServer) {
     mockServer.reset();
@@ -154,4 +172,45 @@ class SupplierBookingAdapterTests {
           + "          \"createdTime\" : \"2020-10-09T15:12:59.459259\",\n"
           + "          \"expiryTime\" : \"2020-10-09T15:42:59.45929\"\n"
           + "        }"));
+
+  private static final HttpRequest TRAIN_REQUEST = request("/kai/bookings")
+      .withHeader("Content-Type", "application/json")
+      .withHeader("Accept", "application/json");
+
+  private static final HttpResponse TRAIN_RESPONSE = response()
+      .withHeader("Content-Type", "application/json")
+      .withBody(json("{\n"
+          + "          \"supplier\" : \"KAI\",\n"
+          + "          \"customer\" : {\n"
+          + "            \"title\" : \"Mr\",\n"
+          + "            \"fullName\" : \"Zaky Alvan\",\n"
+          + "            \"emailAddress\" : \"zaky.alvan@tiket.com\",\n"
+          + "            \"phoneNumber\" : \"6281320144088\",\n"
+          + "            \"memberTier\" : null\n"
+          + "          },\n"
+          + "          \"passengers\" : [ {\n"
+          + "            \"title\" : \"Mr\",\n"
+          + "            \"fullName\" : \"Penumpang Gelap Kulitnya\"\n"
+          + "          } ],\n"
+          + "          \"schedule\" : {\n"
+          + "            \"supplier\" : \"KAI\",\n"
+          + "            \"origin\" : \"GMR\",\n"
+          + "            \"destination\" : \"BD\",\n"
+          + "            \"departDate\" : \""+now().plusDays(1).toString()+"\",\n"
+          + "            \"departTime\" : \"10:20:00\",\n"
+          + "            \"arriveDate\" : \""+now().plusDays(1).toString()+"\",\n"
+          + "            \"arriveTime\" : \"13:30:00\",\n"
+          + "            \"trainNumber\" : \"4322\",\n"
+          + "            \"wagonClass\" : \"EKS\",\n"
+          + "            \"subClass\" : \"A\"\n"
+          + "          },\n"
+          + "          \"pricing\" : {\n"
+          + "            \"basePrice\" : 20,\n"
+          + "            \"convenienceFee\" : 2,\n"
+          + "            \"totalAmount\" : 22\n"
+          + "          },\n"
+          + "          \"state\" : \"BOOKED\",\n"
+          + "          \"createdTime\" : \"2020-10-09T15:12:59.459259\",\n"
+          + "          \"expiryTime\" : \"2020-10-09T15:42:59.45929\"\n"
+          + "        }"));
 }
\ No newline at end of file
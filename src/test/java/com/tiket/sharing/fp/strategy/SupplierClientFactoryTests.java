@@ -0,0 +1,142 @@
+package com.tiket.sharing.fp.strategy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import com.tiket.sharing.fp.strategy.SupplierClientProperties.Client;
+import io.netty.handler.timeout.ReadTimeoutException;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see SupplierClientProperties
+ * @see SupplierClientFactory
+ */
+class SupplierClientFactoryTests {
+  private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+      .withConfiguration(AutoConfigurations.of(PropertyPlaceholderAutoConfiguration.class,
+          ValidationAutoConfiguration.class))
+      .withUserConfiguration(PropertiesConfiguration.class);
+
+  @Test
+  void whenSupplierPropertiesProvided_thenShouldBindPerSupplier() {
+    contextRunner
+        .withPropertyValues(
+            "booking.clients.suppliers.kai.base-url=https://kai.example.com",
+            "booking.clients.suppliers.kai.max-connections=7",
+            "booking.clients.suppliers.kai.pending-acquire-max-count=-1",
+            "booking.clients.suppliers.kai.protocol=h2c",
+            "booking.clients.suppliers.kai.connect-timeout=250ms",
+            "booking.clients.suppliers.kai.read-timeout=3s",
+            "booking.clients.suppliers.kai.metrics=false")
+        .run(context -> {
+          assertThat(context).hasNotFailed();
+          SupplierClientProperties properties = context.getBean(SupplierClientProperties.class);
+
+          Client kai = properties.client(SupplierQualifier.KAI);
+          assertThat(kai.getBaseUrl()).isEqualTo("https://kai.example.com");
+          assertThat(kai.getMaxConnections()).isEqualTo(7);
+          assertThat(kai.getPendingAcquireMaxCount()).isEqualTo(-1);
+          assertThat(kai.getProtocol()).isEqualTo(HttpProtocol.H2C);
+          assertThat(kai.getConnectTimeout()).isEqualTo(Duration.ofMillis(250));
+          assertThat(kai.getReadTimeout()).isEqualTo(Duration.ofSeconds(3));
+          assertThat(kai.isMetrics()).isFalse();
+
+          Client railink = properties.client(SupplierQualifier.RAILINK);
+          assertThat(railink.getBaseUrl()).isNull();
+          assertThat(railink.getMaxConnections()).isEqualTo(50);
+          assertThat(railink.getReadTimeout()).isEqualTo(Duration.ofSeconds(5));
+        });
+  }
+
+  @Test
+  void whenSupplierPropertiesInvalid_thenShouldFailStartup() {
+    contextRunner
+        .withPropertyValues("booking.clients.suppliers.railink.max-connections=0")
+        .run(context -> assertThat(context).hasFailed());
+  }
+
+  @Test
+  void whenH2WithoutTls_thenShouldFailStartup() {
+    contextRunner
+        .withPropertyValues("booking.clients.suppliers.kai.protocol=h2")
+        .run(context -> assertThat(context).hasFailed());
+  }
+
+  @Test
+  void whenCreateClients_thenShouldUseDedicatedPoolPerSupplier() {
+    contextRunner
+        .withPropertyValues(
+            "booking.clients.suppliers.kai.max-connections=7",
+            "booking.clients.suppliers.kai.metrics=false",
+            "booking.clients.suppliers.railink.metrics=false")
+        .run(context -> {
+          SupplierClientProperties properties = context.getBean(SupplierClientProperties.class);
+          SupplierClientFactory clientFactory = new SupplierClientFactory(WebClient.builder(), properties);
+          try {
+            clientFactory.create(SupplierQualifier.KAI, "http://localhost");
+            ConnectionProvider kaiPool = clientFactory.connectionProvider(SupplierQualifier.KAI);
+            clientFactory.create(SupplierQualifier.KAI, "http://localhost");
+            clientFactory.create(SupplierQualifier.RAILINK, "http://localhost");
+
+            assertThat(properties.client(SupplierQualifier.KAI).getMaxConnections()).isEqualTo(7);
+            assertThat(properties.client(SupplierQualifier.RAILINK).getMaxConnections()).isEqualTo(50);
+            assertThat(clientFactory.connectionProvider(SupplierQualifier.KAI)).isSameAs(kaiPool);
+            assertThat(clientFactory.connectionProvider(SupplierQualifier.RAILINK)).isNotNull().isNotSameAs(kaiPool);
+          }
+          finally {
+            clientFactory.destroy();
+          }
+          assertThat(clientFactory.connectionProvider(SupplierQualifier.KAI)).isNull();
+        });
+  }
+
+  @Test
+  void whenSupplierSlowerThanReadTimeout_thenShouldFail() {
+    DisposableServer server = HttpServer.create()
+        .port(0)
+        .handle((request, response) -> Mono.delay(Duration.ofSeconds(2))
+            .then(response.sendString(Mono.just("{}")).then()))
+        .bindNow();
+
+    contextRunner
+        .withPropertyValues(
+            "booking.clients.suppliers.kai.read-timeout=100ms",
+            "booking.clients.suppliers.kai.metrics=false")
+        .run(context -> {
+          SupplierClientFactory clientFactory = new SupplierClientFactory(WebClient.builder(),
+              context.getBean(SupplierClientProperties.class));
+          try {
+            WebClient client = clientFactory.create(SupplierQualifier.KAI, "http://localhost:" + server.port());
+
+            StepVerifier.create(client.get().retrieve().bodyToMono(String.class))
+                .expectError(ReadTimeoutException.class)
+                .verify(Duration.ofSeconds(1));
+          }
+          finally {
+            clientFactory.destroy();
+            server.disposeNow();
+          }
+        });
+  }
+
+  @Configuration(proxyBeanMethods = false)
+  @EnableConfigurationProperties(SupplierClientProperties.class)
+  static class PropertiesConfiguration {
+
+  }
+}
@@ -0,0 +1,190 @@
+package com.tiket.sharing.fp.template;
+
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.tiket.sharing.fp.model.BookingDetails;
+import com.tiket.sharing.fp.model.BookingState;
+import com.tiket.sharing.fp.model.CustomerProfile;
+import com.tiket.sharing.fp.model.JourneyDirection;
+import com.tiket.sharing.fp.model.MembershipTier;
+import com.tiket.sharing.fp.model.OrderRequest;
+import com.tiket.sharing.fp.model.PassengerProfile;
+import com.tiket.sharing.fp.model.Schedule;
+import com.tiket.sharing.fp.model.SupplierQualifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+/**
+ * @author zakyalvan
+ * @see CreateOrderSupport
+ */
+class CreateOrderSupportTests {
+  private final AtomicInteger bookingCalls = new AtomicInteger();
+  private final Queue<BookingDetails> compensated = new ConcurrentLinkedQueue<>();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private Duration bookingDelay = Duration.ZERO;
+  private RuntimeException bookingError;
+
+  private final DefaultCreateOrderHandler orderHandler = new DefaultCreateOrderHandler(parameter -> Mono
+      .delay(bookingDelay)
+      .doOnSubscribe(subscription -> bookingCalls.incrementAndGet())
+      .flatMap(tick -> bookingError != null ? Mono.error(bookingError) : Mono.just(BookingDetails.builder()
+          .supplier(parameter.getSchedule().getSupplier())
+          .customer(parameter.getCustomer())
+          .schedule(parameter.getSchedule())
+          .state(BookingState.BOOKED)
+          .build())), meterRegistry);
+
+  @Test
+  void whenPreprocessorPassedRequest_thenShouldWinWithoutCompensation() {
+    StepVerifier.create(orderHandler.create(ORDER_REQUEST, speculative(Mono::just, this::compensate)))
+        .expectNextCount(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(bookingCalls).hasValue(1);
+    assertThat(compensated).isEmpty();
+    assertThat(speculations("win")).isEqualTo(1);
+    assertThat(speculations("waste")).isZero();
+  }
+
+  @Test
+  void whenPreprocessorRejected_thenShouldCompensateBookings() {
+    StepVerifier
+        .create(orderHandler.create(ORDER_REQUEST, speculative(request -> Mono.delay(Duration.ofMillis(100))
+            .then(Mono.error(new IllegalArgumentException("Rejected"))), this::compensate)))
+        .expectError(IllegalArgumentException.class)
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(compensated).hasSize(1);
+    assertThat(speculations("win")).isZero();
+    assertThat(speculations("waste")).isEqualTo(1);
+  }
+
+  @Test
+  void whenPreprocessorRejectedBeforeBooked_thenShouldCompensateLateBooking() throws Exception {
+    bookingDelay = Duration.ofMillis(200);
+    CountDownLatch compensation = new CountDownLatch(1);
+
+    StepVerifier
+        .create(orderHandler.create(ORDER_REQUEST, speculative(
+            request -> Mono.error(new IllegalArgumentException("Rejected")),
+            booking -> compensate(booking).doOnSuccess(done -> compensation.countDown()))))
+        .expectError(IllegalArgumentException.class)
+        .verify(Duration.ofSeconds(5));
+    assertThat(compensated).isEmpty();
+
+    assertThat(compensation.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(compensated).hasSize(1);
+    assertThat(speculations("waste")).isEqualTo(1);
+  }
+
+  @Test
+  void whenPreprocessorEmpty_thenShouldCompensateAndComplete() {
+    StepVerifier
+        .create(orderHandler.create(ORDER_REQUEST, speculative(request -> Mono.delay(Duration.ofMillis(100))
+            .then(Mono.empty()), this::compensate)))
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(compensated).hasSize(1);
+    assertThat(speculations("waste")).isEqualTo(1);
+  }
+
+  @Test
+  void whenPreprocessorRewroteSchedules_thenShouldCompensateAndBookAgain() {
+    OrderRequest rewritten = OrderRequest.builder()
+        .customer(ORDER_REQUEST.getCustomer())
+        .passengers(ORDER_REQUEST.getPassengers())
+        .schedules(Collections.singletonMap(JourneyDirection.DEPART, Schedule.builder()
+            .supplier(SupplierQualifier.RAILINK)
+            .origin("SDB").destination("KNO")
+            .build()))
+        .build();
+
+    StepVerifier
+        .create(orderHandler.create(ORDER_REQUEST, speculative(request -> Mono.delay(Duration.ofMillis(100))
+            .thenReturn(rewritten), this::compensate)))
+        .expectNextCount(1)
+        .expectComplete()
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(bookingCalls).hasValue(2);
+    assertThat(compensated).extracting(booking -> booking.getSchedule().getDestination()).containsExactly("BST");
+    assertThat(speculations("win")).isZero();
+    assertThat(speculations("waste")).isEqualTo(1);
+  }
+
+  @Test
+  void whenCompensationFailed_thenShouldKeepPreprocessorError() {
+    StepVerifier
+        .create(orderHandler.create(ORDER_REQUEST, speculative(request -> Mono.delay(Duration.ofMillis(100))
+                .then(Mono.error(new IllegalArgumentException("Rejected"))),
+            booking -> Mono.error(new IllegalStateException("Compensation failure")))))
+        .expectError(IllegalArgumentException.class)
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(speculations("waste")).isEqualTo(1);
+  }
+
+  @Test
+  void whenSpeculativeBookingFailed_thenShouldNotCountWin() {
+    bookingError = new IllegalStateException("Supplier failure");
+
+    StepVerifier.create(orderHandler.create(ORDER_REQUEST, speculative(Mono::just, this::compensate)))
+        .expectErrorMessage("Supplier failure")
+        .verify(Duration.ofSeconds(5));
+
+    assertThat(speculations("win")).isZero();
+    assertThat(speculations("waste")).isZero();
+  }
+
+  private Mono<Void> compensate(BookingDetails booking) {
+    return Mono.fromRunnable(() -> compensated.add(booking));
+  }
+
+  private static Consumer<CreateOrderOptions> speculative(
+      Function<OrderRequest, Mono<OrderRequest>> preprocessor, Function<BookingDetails, Mono<Void>> compensator) {
+    return options -> options
+        .requestPreprocessor(preprocessor)
+        .orderSynchronizer(order -> Mono.empty())
+        .orderPersister(order -> order)
+        .speculativeBooking(true)
+        .bookingCompensator(compensator);
+  }
+
+  private double speculations(String outcome) {
+    return meterRegistry.get("order.speculation").tag("outcome", outcome).counter().count();
+  }
+
+  private static final List<PassengerProfile> PASSENGERS = singletonList(PassengerProfile.builder()
+      .title("Mr").fullName("Penumpang Gelap Kulitnya")
+      .build());
+
+  private static final OrderRequest ORDER_REQUEST = OrderRequest.builder()
+      .customer(CustomerProfile.builder()
+          .title("Mr").fullName("Mang Oleh")
+          .emailAddress("mang.oleh@odading.com").phoneNumber("6281320123123")
+          .memberTier(MembershipTier.BASIC)
+          .build())
+      .passengers(PASSENGERS)
+      .schedules(Collections.singletonMap(JourneyDirection.DEPART, Schedule.builder()
+          .supplier(SupplierQualifier.RAILINK)
+          .origin("SDB").destination("BST")
+          .build()))
+      .build();
+}